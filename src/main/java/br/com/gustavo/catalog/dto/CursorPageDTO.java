@@ -0,0 +1,34 @@
+package br.com.gustavo.catalog.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// pagina da busca por cursor: sem totalElements/totalPages, so o conteudo e o token da proxima pagina
+// next == null quer dizer que nao existe proxima pagina
+public class CursorPageDTO<T> {
+
+    private List<T> content = new ArrayList<>();
+    private Integer size;
+    private String next;
+
+    public CursorPageDTO() {
+    }
+
+    public CursorPageDTO(List<T> content, Integer size, String next) {
+        this.content = content;
+        this.size = size;
+        this.next = next;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
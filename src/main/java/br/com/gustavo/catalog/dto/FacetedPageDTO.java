@@ -0,0 +1,21 @@
+package br.com.gustavo.catalog.dto;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.List;
+
+// mesma pagina de sempre (content, totalElements...) com a contagem de produtos por categoria junto
+public class FacetedPageDTO<T> extends PageImpl<T> {
+
+    private final List<CategoryFacetDTO> facets;
+
+    public FacetedPageDTO(Page<T> page, List<CategoryFacetDTO> facets) {
+        super(page.getContent(), page.getPageable(), page.getTotalElements());
+        this.facets = facets;
+    }
+
+    public List<CategoryFacetDTO> getFacets() {
+        return facets;
+    }
+}
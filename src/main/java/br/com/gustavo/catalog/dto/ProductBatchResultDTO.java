@@ -0,0 +1,47 @@
+package br.com.gustavo.catalog.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.Serializable;
+
+// resultado de um item do PUT /products/batch, na mesma posicao (index) em que o item veio na lista
+public class ProductBatchResultDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        CREATED, UPDATED, NOT_FOUND, INVALID
+    }
+
+    private Integer index;
+    private Long id;
+    private Status status;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String message;
+
+    public ProductBatchResultDTO() {
+    }
+
+    public ProductBatchResultDTO(Integer index, Long id, Status status, String message) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -3,6 +3,7 @@ package br.com.gustavo.catalog.dto;
 
 import br.com.gustavo.catalog.entities.Category;
 import br.com.gustavo.catalog.entities.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Positive;
@@ -23,6 +24,8 @@ public class ProductDTO implements Serializable {
     @NotBlank(message = "O nome é obrigatório")
     private String name;
 
+    // nas listagens a descricao nao eh lida do banco e fica fora do JSON
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     @NotBlank(message = "Campo obrigatório")
     private String description;
 
@@ -0,0 +1,27 @@
+package br.com.gustavo.catalog.dto;
+
+import java.io.Serializable;
+
+public class ProductImportErrorDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // numero do registro no arquivo (1 = primeiro produto, sem contar o cabecalho do CSV)
+    private Long row;
+    private String message;
+
+    public ProductImportErrorDTO() {
+    }
+
+    public ProductImportErrorDTO(Long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public Long getRow() {
+        return row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.gustavo.catalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+// resultado de uma importacao: quantos produtos entraram, quantos foram rejeitados e o motivo de cada rejeicao
+public class ProductImportReportDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // um arquivo muito ruim nao deve gerar uma resposta gigante: a partir daqui os erros so sao contados
+    public static final int MAX_ERRORS = 100;
+
+    private long imported;
+    private long rejected;
+    private List<ProductImportErrorDTO> errors = new ArrayList<>();
+
+    public ProductImportReportDTO() {
+    }
+
+    public void addImported(long count) {
+        imported += count;
+    }
+
+    public void addError(long row, String message) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new ProductImportErrorDTO(row, message));
+        }
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<ProductImportErrorDTO> getErrors() {
+        return errors;
+    }
+}
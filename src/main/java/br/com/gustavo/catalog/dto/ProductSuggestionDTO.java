@@ -0,0 +1,26 @@
+package br.com.gustavo.catalog.dto;
+
+import java.io.Serializable;
+
+public class ProductSuggestionDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+    private String name;
+
+    public ProductSuggestionDTO() {
+    }
+
+    public ProductSuggestionDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,41 @@
+package br.com.gustavo.catalog.dto;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// envelope enxuto para o Slice: o SliceImpl serializado traz pageable, sort, first, last, empty...
+public class SliceDTO<T> {
+
+    private List<T> content = new ArrayList<>();
+    private Integer number;
+    private Integer size;
+    private Boolean hasNext;
+
+    public SliceDTO() {
+    }
+
+    public SliceDTO(Slice<T> slice) {
+        content = slice.getContent();
+        number = slice.getNumber();
+        size = slice.getSize();
+        hasNext = slice.hasNext();
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public Integer getNumber() {
+        return number;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+}
@@ -1,6 +1,8 @@
 package br.com.gustavo.catalog.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.io.Serializable;
 import java.time.Instant;
@@ -8,13 +10,17 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+// categorias quase nunca mudam: ficam no cache de segundo nivel do Hibernate (regiao "category")
 @Entity
 @Table(name = "tb_category")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 public class Category implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "tb_category_seq", allocationSize = 50)
     private Long id;
     private String name;
 
@@ -10,7 +10,8 @@ import java.util.Objects;
 public class PasswordRecover {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "password_recover_seq")
+    @SequenceGenerator(name = "password_recover_seq", sequenceName = "tb_password_recover_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -2,6 +2,7 @@ package br.com.gustavo.catalog.entities;
 
 import br.com.gustavo.catalog.projections.IdProjection;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.io.Serializable;
 import java.time.Instant;
@@ -10,14 +11,32 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "tb_product")
+@EntityListeners(ProductSearchNameListener.class)
+@Table(name = "tb_product", indexes = {
+        @Index(name = "idx_product_search_name", columnList = "search_name"),
+        // faixa de preco/data e ORDER BY preco/data (com o id de desempate que a busca sempre usa) pelo mesmo indice
+        @Index(name = "idx_product_price", columnList = "price, id"),
+        @Index(name = "idx_product_date", columnList = "date, id"),
+        // ordem da paginacao por cursor (ORDER BY name, id a partir do ultimo (name, id) retornado)
+        @Index(name = "idx_product_name", columnList = "name, id")})
 public class Product implements IdProjection<Long> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids de uma sequence com otimizador pooled: uma ida ao banco reserva 50 ids, e os inserts podem ir em batch
+    // (com IDENTITY o Hibernate precisa executar cada insert na hora para saber o id)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "tb_product_seq", allocationSize = 50)
     private Long id;
     private String name;
 
+    // nome normalizado (minusculas, sem acentos) usado pelo filtro de nome da busca
+    // preenchido pelo ProductSearchNameListener sempre que o produto eh salvo
+    @Column(name = "search_name")
+    private String searchName;
+
+    // so eh lida do banco quando acessada (bytecode enhancement no pom.xml): as leituras de Product sem a descricao
+    // nao trazem o TEXT
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "TEXT")
     private String description;
 
@@ -27,12 +46,19 @@ public class Product implements IdProjection<Long> {
     @Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
     private Instant date;
 
+    // categorias de varios produtos carregadas de uma vez (um IN com ate 100 produtos) em vez de uma consulta por produto
+    @BatchSize(size = 100)
     @ManyToMany
     @JoinTable(name = "tb_product_category",
         joinColumns = @JoinColumn(name = "product_id"),
         inverseJoinColumns = @JoinColumn(name = "category_id"))
     Set<Category> categories = new HashSet<>();
 
+    // incrementada pelo Hibernate a cada escrita do produto (inclusive quando so as categorias mudam)
+    // vira o ETag do GET /products/{id}
+    @Version
+    private Long version;
+
     public Product() {
     }
 
@@ -62,6 +88,18 @@ public class Product implements IdProjection<Long> {
         this.name = name;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public String getSearchName() {
+        return searchName;
+    }
+
+    public void setSearchName(String searchName) {
+        this.searchName = searchName;
+    }
+
     public String getDescription() {
         return description;
     }
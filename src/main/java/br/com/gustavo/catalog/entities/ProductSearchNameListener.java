@@ -0,0 +1,15 @@
+package br.com.gustavo.catalog.entities;
+
+import br.com.gustavo.catalog.util.Utils;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+// mantem o search_name do produto igual ao nome normalizado, em toda insercao e atualizacao
+public class ProductSearchNameListener {
+
+    @PrePersist
+    @PreUpdate
+    public void updateSearchName(Product product) {
+        product.setSearchName(Utils.normalize(product.getName()));
+    }
+}
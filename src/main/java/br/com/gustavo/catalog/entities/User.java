@@ -12,7 +12,8 @@ import java.util.*;
 public class User implements UserDetails{
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "tb_user_seq", allocationSize = 50)
     private Long id;
 
     private String firstName;
@@ -0,0 +1,7 @@
+package br.com.gustavo.catalog.projections;
+
+public interface ProductCategoryProjection {
+
+    Long getProductId();
+    Long getCategoryId();
+}
@@ -0,0 +1,6 @@
+package br.com.gustavo.catalog.projections;
+
+public interface ProductTextProjection extends ProductProjection {
+
+    String getDescription();
+}
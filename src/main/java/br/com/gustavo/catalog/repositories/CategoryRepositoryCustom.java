@@ -0,0 +1,11 @@
+package br.com.gustavo.catalog.repositories;
+
+import br.com.gustavo.catalog.entities.Category;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CategoryRepositoryCustom {
+
+    List<Category> loadAllById(Collection<Long> ids);
+}
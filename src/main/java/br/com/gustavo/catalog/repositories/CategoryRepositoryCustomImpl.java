@@ -0,0 +1,46 @@
+package br.com.gustavo.catalog.repositories;
+
+import br.com.gustavo.catalog.entities.Category;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Transactional(readOnly = true)
+public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // como o findAllById, mas as categorias que ja estao no cache de segundo nivel sao lidas dele (find),
+    // e so as que faltarem vao para o banco, todas juntas em um IN
+    // (o multiLoad do Hibernate grava no cache mas nao le dele)
+    // ids inexistentes ficam de fora da lista
+    @Override
+    public List<Category> loadAllById(Collection<Long> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        List<Category> categories = new ArrayList<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            if (cache.contains(Category.class, id)) {
+                Category category = entityManager.find(Category.class, id);
+                if (category != null) {
+                    categories.add(category);
+                }
+            }
+            else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            categories.addAll(entityManager.createQuery("SELECT obj FROM Category obj WHERE obj.id IN :ids", Category.class)
+                    .setParameter("ids", missing)
+                    .getResultList());
+        }
+        return categories;
+    }
+}
@@ -1,17 +1,29 @@
 package br.com.gustavo.catalog.repositories;
 
 import br.com.gustavo.catalog.entities.Product;
+import br.com.gustavo.catalog.projections.CategoryCountProjection;
+import br.com.gustavo.catalog.projections.ProductCategoryProjection;
 import br.com.gustavo.catalog.projections.ProductProjection;
+import br.com.gustavo.catalog.projections.ProductTextProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    int EXPORT_FETCH_SIZE = 500;
 
     // vamos buscar os produtos paginados por id, na ordem alfabetica pelo name
+    // o filtro de nome eh feito no search_name (sem acentos), entao o name deve vir normalizado (Utils.normalize)
     // qnd estamos passando uma busca paginada, temos que obrigatoriamente passar um "countQuery"
     @Query(nativeQuery = true, value = """
             SELECT * FROM (
@@ -19,7 +31,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             FROM tb_product
             INNER JOIN tb_product_category ON tb_product_category.product_id = tb_product.id
             WHERE (:categoryIds IS NULL OR tb_product_category.category_id IN (:categoryIds))
-            AND (LOWER(tb_product.name) LIKE LOWER(CONCAT('%',:name,'%')))
+            AND (tb_product.search_name LIKE LOWER(CONCAT('%',:name,'%')))
             ) AS tb_result            
             """,
                     countQuery = """
@@ -28,11 +40,85 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             FROM tb_product
             INNER JOIN tb_product_category ON tb_product_category.product_id = tb_product.id
             WHERE (:categoryIds IS NULL OR tb_product_category.category_id IN (:categoryIds))
-            AND (LOWER(tb_product.name) LIKE LOWER(CONCAT('%',:name,'%')))
+            AND (tb_product.search_name LIKE LOWER(CONCAT('%',:name,'%')))
             ) AS tb_result
             """)
     Page<ProductProjection> searchProducts(List<Long> categoryIds, String name, Pageable pageable);
 
+    // busca por cursor (keyset): em vez de OFFSET, continua a partir do ultimo (name, id) retornado
+    // sem countQuery, entao buscar a pagina 10.000 custa o mesmo que buscar a primeira: o banco percorre o indice
+    // idx_product_name a partir do cursor e para no LIMIT; a categoria eh um semi-join (como no buildWhere da busca),
+    // sem o INNER JOIN + DISTINCT que obrigava a juntar e ordenar todo o conjunto filtrado a cada pagina
+    @Query(nativeQuery = true, value = """
+            SELECT tb_product.id, tb_product.name
+            FROM tb_product
+            WHERE tb_product.id IN (SELECT tb_product_category.product_id FROM tb_product_category
+                WHERE (:categoryIds IS NULL OR tb_product_category.category_id IN (:categoryIds)))
+            AND (tb_product.search_name LIKE LOWER(CONCAT('%',:name,'%')))
+            AND (tb_product.name > :afterName OR (tb_product.name = :afterName AND tb_product.id > :afterId))
+            ORDER BY tb_product.name, tb_product.id
+            LIMIT :limit
+            """)
+    List<ProductProjection> searchProductsAfter(List<Long> categoryIds, String name, String afterName, Long afterId, int limit);
+
+    // so id e nome de todos os produtos, para montar os indices em memoria sem carregar as entidades
+    @Query("SELECT obj.id AS id, obj.name AS name FROM Product obj")
+    List<ProductProjection> searchProductNames();
+
+    // produtos gravados antes da coluna search_name existir (ou inseridos direto por SQL)
+    List<Product> findBySearchNameIsNull();
+
+    // id, nome e descricao de todos os produtos, para o indice de relevancia
+    @Query("SELECT obj.id AS id, obj.name AS name, obj.description AS description FROM Product obj")
+    List<ProductTextProjection> searchProductTexts();
+
+    // sugestoes pelo comeco do nome, enquanto o indice de sugestoes nao esta pronto (prefixo ja normalizado)
+    // mesmo criterio do ProductSuggestIndex: prefixo do nome inteiro ou de qualquer palavra
+    // o LIKE 'prefixo%' usa o indice idx_product_search_name, o '% prefixo%' (inicio de palavra) varre a tabela,
+    // mas so roda enquanto o indice em memoria nao foi montado
+    @Query("SELECT obj.id AS id, obj.name AS name FROM Product obj "
+            + "WHERE obj.searchName LIKE CONCAT(:prefix, '%') OR obj.searchName LIKE CONCAT('% ', :prefix, '%') "
+            + "ORDER BY obj.name")
+    List<ProductProjection> suggestProductNames(String prefix, Pageable pageable);
+
+    // todas as associacoes produto/categoria, para montar os bitmaps de categoria em memoria
+    @Query(nativeQuery = true, value = """
+            SELECT tb_product_category.product_id AS productId, tb_product_category.category_id AS categoryId
+            FROM tb_product_category
+            """)
+    List<ProductCategoryProjection> searchProductCategories();
+
+    // quantidade de produtos por categoria para um filtro de nome, em uma unica agregacao
+    @Query(nativeQuery = true, value = """
+            SELECT tb_product_category.category_id AS categoryId, COUNT(*) AS total
+            FROM tb_product_category
+            INNER JOIN tb_product ON tb_product.id = tb_product_category.product_id
+            WHERE tb_product.search_name LIKE LOWER(CONCAT('%',:name,'%'))
+            GROUP BY tb_product_category.category_id
+            """)
+    List<CategoryCountProjection> countProductsByCategory(String name);
+
+    // todos os produtos, lidos aos poucos do cursor do banco (fetch size) e sem snapshot para dirty checking
+    // o entity graph traz a descricao (LAZY) na mesma consulta; as categorias vem pelo @BatchSize
+    // precisa de uma transacao aberta enquanto o Stream eh consumido, e deve ser fechado no fim
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @EntityGraph(attributePaths = "description", type = EntityGraph.EntityGraphType.FETCH)
+    @Query("SELECT obj FROM Product obj ORDER BY obj.id")
+    Stream<Product> streamAll();
+
+    // produto do GET /products/{id} com a descricao (lazy) e as categorias em uma consulta so
+    @EntityGraph(attributePaths = {"description", "categories"}, type = EntityGraph.EntityGraphType.FETCH)
+    Optional<Product> findWithDescriptionById(Long id);
+
+    // so a versao do produto (consulta pela chave primaria, sem carregar a entidade), para o GET condicional
+    @Query("SELECT obj.version FROM Product obj WHERE obj.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    // produtos completos (com descricao e categorias) em uma consulta so, para montar o JSON do detalhe
+    // o JOIN (e nao LEFT JOIN) deixa de fora produtos sem categoria, que tambem nao aparecem nas listagens
+    @EntityGraph(attributePaths = "description", type = EntityGraph.EntityGraphType.FETCH)
     @Query("SELECT obj FROM Product obj JOIN FETCH obj.categories "
             + "WHERE obj.id IN :productIds")
     List<Product> searchProductsWithCategories(List<Long> productIds);
@@ -0,0 +1,17 @@
+package br.com.gustavo.catalog.repositories;
+
+import br.com.gustavo.catalog.dto.ProductDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    Page<ProductDTO> searchProductsPage(ProductSearchFilter filter, Pageable pageable);
+
+    Slice<ProductDTO> searchProductsSlice(ProductSearchFilter filter, Pageable pageable);
+
+    List<ProductDTO> searchProductsByIds(List<Long> productIds);
+}
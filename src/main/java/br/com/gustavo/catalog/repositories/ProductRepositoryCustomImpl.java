@@ -0,0 +1,249 @@
+package br.com.gustavo.catalog.repositories;
+
+import br.com.gustavo.catalog.dto.CategoryDTO;
+import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.util.Utils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Transactional(readOnly = true)
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    // propriedades do Pageable que podem ser usadas no sort e a coluna correspondente
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id",
+            "name", "name",
+            "price", "price",
+            "date", "date");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // as listagens leem so as colunas do card do produto direto do SQL para o ProductDTO:
+    // sem a descricao (TEXT) e sem entidades Product/Category no contexto de persistencia
+
+    // busca a pagina ordenada, as categorias de cada produto e o total em uma unica ida ao banco:
+    // a subconsulta tb_page filtra, ordena e pagina os produtos (o COUNT(*) OVER () eh calculado antes do LIMIT, entao eh o total)
+    // e a consulta de fora junta as categorias, retornando uma linha por (produto, categoria)
+    @Override
+    public Page<ProductDTO> searchProductsPage(ProductSearchFilter filter, Pageable pageable) {
+        // os indices em memoria ja disseram que nenhum produto casa: nem vai ao banco
+        if (filter.getProductIds() != null && filter.getProductIds().isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0L);
+        }
+
+        List<Object[]> rows = searchRows(filter, pageable, pageable.getPageSize(), true);
+        List<ProductDTO> products = toProducts(rows);
+
+        long total = rows.isEmpty() ? 0L : (Long) rows.get(0)[0];
+        // pagina depois do fim: nao veio nenhuma linha, entao o total precisa ser contado a parte
+        if (rows.isEmpty() && pageable.getOffset() > 0) {
+            total = countProducts(filter);
+        }
+
+        return new PageImpl<>(products, pageable, total);
+    }
+
+    // mesma consulta, mas sem o COUNT(*) OVER (): busca um produto a mais so pra saber se existe proxima pagina
+    @Override
+    public Slice<ProductDTO> searchProductsSlice(ProductSearchFilter filter, Pageable pageable) {
+        if (filter.getProductIds() != null && filter.getProductIds().isEmpty()) {
+            return new SliceImpl<>(new ArrayList<>(), pageable, false);
+        }
+
+        List<Object[]> rows = searchRows(filter, pageable, pageable.getPageSize() + 1, false);
+        List<ProductDTO> products = toProducts(rows);
+
+        boolean hasNext = products.size() > pageable.getPageSize();
+        if (hasNext) {
+            products = products.subList(0, pageable.getPageSize());
+        }
+
+        return new SliceImpl<>(products, pageable, hasNext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> searchRows(ProductSearchFilter filter, Pageable pageable, int limit, boolean withTotal) {
+        String orderBy = buildOrderBy(pageable.getSort());
+
+        String page = """
+                SELECT tb_page.total, tb_page.id, tb_page.name, tb_page.price, tb_page.img_url, tb_page.date,
+                tb_category.id AS category_id, tb_category.name AS category_name
+                FROM (
+                SELECT tb_product.id, tb_product.name, tb_product.price, tb_product.img_url, tb_product.date,
+                %s AS total
+                FROM tb_product
+                """.formatted(withTotal ? "COUNT(*) OVER ()" : "0");
+        String categories = """
+                ORDER BY %s
+                LIMIT :limit OFFSET :offset
+                ) AS tb_page
+                INNER JOIN tb_product_category ON tb_product_category.product_id = tb_page.id
+                INNER JOIN tb_category ON tb_category.id = tb_product_category.category_id
+                ORDER BY %s, tb_category.id
+                """.formatted(orderBy.formatted("tb_product"), orderBy.formatted("tb_page"));
+        String sql = page + buildWhere(filter) + categories;
+
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addScalar("total", StandardBasicTypes.LONG);
+        addProductScalars(query);
+        setFilterParameters(query, filter);
+        query.setParameter("limit", limit);
+        query.setParameter("offset", pageable.getOffset());
+        return query.getResultList();
+    }
+
+    // produtos (com as categorias) na ordem dos ids recebidos, para as buscas em que a ordem vem de fora do banco
+    // (relevancia, cursor)
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ProductDTO> searchProductsByIds(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = """
+                SELECT 0 AS total, tb_product.id, tb_product.name, tb_product.price, tb_product.img_url, tb_product.date,
+                tb_category.id AS category_id, tb_category.name AS category_name
+                FROM tb_product
+                INNER JOIN tb_product_category ON tb_product_category.product_id = tb_product.id
+                INNER JOIN tb_category ON tb_category.id = tb_product_category.category_id
+                WHERE tb_product.id IN (:productIds)
+                ORDER BY tb_category.id
+                """;
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addScalar("total", StandardBasicTypes.LONG);
+        addProductScalars(query);
+        query.setParameter("productIds", productIds);
+
+        Map<Long, ProductDTO> products = new HashMap<>();
+        for (ProductDTO dto : toProducts(query.getResultList())) {
+            products.put(dto.getId(), dto);
+        }
+        List<ProductDTO> result = new ArrayList<>();
+        for (Long id : productIds) {
+            ProductDTO dto = products.get(id);
+            if (dto != null) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    private void addProductScalars(NativeQuery<Object[]> query) {
+        query.addScalar("id", StandardBasicTypes.LONG)
+                .addScalar("name", StandardBasicTypes.STRING)
+                .addScalar("price", StandardBasicTypes.DOUBLE)
+                .addScalar("img_url", StandardBasicTypes.STRING)
+                .addScalar("date", StandardBasicTypes.INSTANT)
+                .addScalar("category_id", StandardBasicTypes.LONG)
+                .addScalar("category_name", StandardBasicTypes.STRING);
+    }
+
+    // agrupa as linhas (produto, categoria) em um ProductDTO por produto, mantendo a ordem da consulta
+    private List<ProductDTO> toProducts(List<Object[]> rows) {
+        Map<Long, ProductDTO> products = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            ProductDTO dto = products.computeIfAbsent((Long) row[1], id -> new ProductDTO(id, (String) row[2],
+                    null, (Double) row[3], (String) row[4], (Instant) row[5]));
+            dto.getCategories().add(new CategoryDTO((Long) row[6], (String) row[7]));
+        }
+        return new ArrayList<>(products.values());
+    }
+
+    private long countProducts(ProductSearchFilter filter) {
+        var query = entityManager.createNativeQuery("SELECT COUNT(*) FROM tb_product " + buildWhere(filter), Long.class);
+        setFilterParameters(query, filter);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    // semi-join com IN (subconsulta) no lugar do INNER JOIN + DISTINCT: continua trazendo so produtos com categoria,
+    // sem duplicar linhas (EXISTS correlacionado ficou bem mais lento no H2)
+    private String buildWhere(ProductSearchFilter filter) {
+        String where = """
+                WHERE tb_product.id IN (SELECT tb_product_category.product_id FROM tb_product_category
+                """;
+        if (!filter.getCategoryIds().isEmpty()) {
+            where += "WHERE tb_product_category.category_id IN (:categoryIds)\n";
+        }
+        where += ")\n";
+
+        // com os ids vindos dos indices em memoria o LIKE nao eh mais necessario
+        if (filter.getProductIds() != null) {
+            where += "AND tb_product.id IN (:productIds)\n";
+        }
+        else if (!filter.getName().isBlank()) {
+            where += "AND tb_product.search_name LIKE CONCAT('%', :name, '%')\n";
+        }
+
+        // faixas de preco e data: atendidas pelos indices idx_product_price e idx_product_date
+        if (filter.getMinPrice() != null) {
+            where += "AND tb_product.price >= :minPrice\n";
+        }
+        if (filter.getMaxPrice() != null) {
+            where += "AND tb_product.price <= :maxPrice\n";
+        }
+        if (filter.getFrom() != null) {
+            where += "AND tb_product.date >= :from\n";
+        }
+        if (filter.getTo() != null) {
+            where += "AND tb_product.date <= :to\n";
+        }
+        return where;
+    }
+
+    private void setFilterParameters(jakarta.persistence.Query query, ProductSearchFilter filter) {
+        if (!filter.getCategoryIds().isEmpty()) {
+            query.setParameter("categoryIds", filter.getCategoryIds());
+        }
+        if (filter.getProductIds() != null) {
+            query.setParameter("productIds", filter.getProductIds());
+        }
+        else if (!filter.getName().isBlank()) {
+            query.setParameter("name", Utils.normalize(filter.getName()));
+        }
+        if (filter.getMinPrice() != null) {
+            query.setParameter("minPrice", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            query.setParameter("maxPrice", filter.getMaxPrice());
+        }
+        if (filter.getFrom() != null) {
+            query.setParameter("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            query.setParameter("to", filter.getTo());
+        }
+    }
+
+    // monta o ORDER BY a partir do Sort do Pageable, usando so colunas conhecidas (nada do cliente vai direto pro SQL)
+    // o id sempre entra no fim para a ordem ser estavel entre as paginas
+    private String buildOrderBy(Sort sort) {
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("Ordenação inválida: " + order.getProperty());
+            }
+            orders.add("%1$s." + column + (order.isDescending() ? " DESC" : " ASC"));
+        }
+        orders.add("%1$s.id");
+        return String.join(", ", orders);
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.gustavo.catalog.repositories;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// filtros da busca de produtos (searchProductsPage / searchProductsSlice)
+public class ProductSearchFilter {
+
+    private List<Long> categoryIds = new ArrayList<>();
+    private String name = "";
+
+    // faixas de preco e de data (inclusivas); null quer dizer sem limite
+    private Double minPrice;
+    private Double maxPrice;
+    private Instant from;
+    private Instant to;
+
+    // ids ja resolvidos pelos indices em memoria; quando preenchido substitui o LIKE do nome (e o service limpa categoryIds)
+    // null quer dizer sem restricao por id, lista vazia quer dizer que nenhum produto casa
+    private List<Long> productIds;
+
+    public ProductSearchFilter() {
+    }
+
+    public ProductSearchFilter(List<Long> categoryIds, String name) {
+        this.categoryIds = categoryIds;
+        this.name = name;
+    }
+
+    public List<Long> getCategoryIds() {
+        return categoryIds;
+    }
+
+    public void setCategoryIds(List<Long> categoryIds) {
+        this.categoryIds = categoryIds;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+
+    public void setProductIds(List<Long> productIds) {
+        this.productIds = productIds;
+    }
+}
@@ -1,9 +1,14 @@
 package br.com.gustavo.catalog.repositories;
 
 import br.com.gustavo.catalog.entities.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface RoleRepository extends JpaRepository<Role, Long> {
 
+    // chamada em todo cadastro de usuario: o resultado fica no cache de consultas (e a Role no cache de segundo nivel)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Role findByAuthority(String authority);
 }
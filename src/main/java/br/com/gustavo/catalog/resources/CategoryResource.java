@@ -4,9 +4,11 @@ import br.com.gustavo.catalog.dto.CategoryDTO;
 import br.com.gustavo.catalog.entities.Category;
 import br.com.gustavo.catalog.services.CategoryService;
 import org.springframework.data.domain.*;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -32,10 +34,14 @@ public class CategoryResource {
 
      */
 
+    // a listagem sai pronta (JSON da versao atual) com ETag; If-None-Match com a versao atual recebe 304
     @GetMapping
-    public ResponseEntity<Page<CategoryDTO>> findAll(Pageable pageable) {
-        Page<CategoryDTO> list = categoryService.findAllPaged(pageable);
-        return ResponseEntity.ok().body(list);
+    public ResponseEntity<byte[]> findAll(Pageable pageable, WebRequest request) {
+        if (request.checkNotModified(categoryService.listingETag())) {
+            return null;
+        }
+        CategoryService.CategoryListing listing = categoryService.findAllPagedJson(pageable);
+        return ResponseEntity.ok().eTag(listing.eTag()).contentType(MediaType.APPLICATION_JSON).body(listing.json());
     }
 
     @GetMapping("/{id}")
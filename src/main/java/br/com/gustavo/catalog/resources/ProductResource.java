@@ -1,32 +1,57 @@
 package br.com.gustavo.catalog.resources;
 
 import br.com.gustavo.catalog.dto.CategoryDTO;
+import br.com.gustavo.catalog.dto.CursorPageDTO;
+import br.com.gustavo.catalog.dto.ProductBatchResultDTO;
+import br.com.gustavo.catalog.dto.FacetedPageDTO;
 import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.dto.ProductImportReportDTO;
+import br.com.gustavo.catalog.dto.ProductSuggestionDTO;
+import br.com.gustavo.catalog.dto.SliceDTO;
 import br.com.gustavo.catalog.dto.UriDTO;
 import br.com.gustavo.catalog.projections.ProductProjection;
 import br.com.gustavo.catalog.services.CategoryService;
+import br.com.gustavo.catalog.services.ProductExportService;
+import br.com.gustavo.catalog.services.ProductImportService;
 import br.com.gustavo.catalog.services.ProductService;
+import br.com.gustavo.catalog.services.cache.ProductDetailCache;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping("/products")
 public class ProductResource {
 
     private final ProductService productService;
+    private final ProductExportService productExportService;
+    private final ProductImportService productImportService;
+    private final ProductDetailCache productDetailCache;
 
-    public ProductResource(ProductService productService) {
+    public ProductResource(ProductService productService, ProductExportService productExportService,
+                           ProductImportService productImportService, ProductDetailCache productDetailCache) {
         this.productService = productService;
+        this.productExportService = productExportService;
+        this.productImportService = productImportService;
+        this.productDetailCache = productDetailCache;
     }
 
 
@@ -43,15 +68,109 @@ public class ProductResource {
     public ResponseEntity<Page<ProductDTO>> findAll(
             @RequestParam(value = "name", defaultValue = "") String name,
             @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "facets", defaultValue = "false") boolean facets,
             Pageable pageable) {
-        Page<ProductDTO> list = productService.findAllPaged2(name, categoryId, pageable);
+        // minPrice/maxPrice e from/to (ISO-8601, ex: 2020-07-01T00:00:00Z) sao faixas inclusivas
+        Page<ProductDTO> list = productService.findAllPaged2(name, categoryId, minPrice, maxPrice, from, to, pageable);
+        // facets=true: junto com a pagina vem a contagem de produtos por categoria para o mesmo filtro de nome
+        if (facets) {
+            list = new FacetedPageDTO<>(list, productService.findCategoryFacets(name));
+        }
         return ResponseEntity.ok().body(list);
     }
 
+    // varios produtos de uma vez, na ordem pedida: /products?ids=3,1,2 (carrinho, lista de desejos)
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<ProductDTO>> findAllByIds(@RequestParam(value = "ids") List<Long> ids) {
+        List<ProductDTO> list = productService.findAllByIds(ids);
+        return ResponseEntity.ok().body(list);
+    }
+
+    // busca sem total (mode=slice): nao roda o count e responde so com content, number, size e hasNext
+    @GetMapping(params = "mode=slice")
+    public ResponseEntity<SliceDTO<ProductDTO>> findAllSliced(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            Pageable pageable) {
+        Slice<ProductDTO> list = productService.findAllSliced(name, categoryId, minPrice, maxPrice, from, to, pageable);
+        return ResponseEntity.ok().body(new SliceDTO<>(list));
+    }
+
+    // busca tolerante a erros de digitacao (mode=fuzzy): cada palavra do nome aceita 1 ou 2 letras erradas
+    @GetMapping(params = "mode=fuzzy")
+    public ResponseEntity<Page<ProductDTO>> findAllFuzzy(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
+            Pageable pageable) {
+        Page<ProductDTO> list = productService.findAllFuzzy(name, categoryId, pageable);
+        return ResponseEntity.ok().body(list);
+    }
+
+    // busca por relevancia (mode=relevance): os produtos que mais combinam com o texto (nome e descricao) primeiro
+    @GetMapping(params = "mode=relevance")
+    public ResponseEntity<Page<ProductDTO>> findAllByRelevance(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
+            Pageable pageable) {
+        Page<ProductDTO> list = productService.findAllByRelevance(name, categoryId, pageable);
+        return ResponseEntity.ok().body(list);
+    }
+
+    // paginacao por cursor (opt-in com mode=cursor): o cliente manda o token "next" da resposta anterior em "after"
+    @GetMapping(params = "mode=cursor")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> findAllCursor(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
+            @RequestParam(value = "after", required = false) String after,
+            Pageable pageable) {
+        CursorPageDTO<ProductDTO> list = productService.findAllCursor(name, categoryId, after, pageable.getPageSize());
+        return ResponseEntity.ok().body(list);
+    }
+
+    // autocomplete do campo de busca: /products/suggest?q=sma
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggest(
+            @RequestParam(value = "q", defaultValue = "") String q,
+            @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        List<ProductSuggestionDTO> list = productService.findSuggestions(q, limit);
+        return ResponseEntity.ok().body(list);
+    }
+
+    // catalogo inteiro em NDJSON (um produto por linha), escrito aos poucos enquanto eh lido do banco
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export() {
+        StreamingResponseBody body = out -> productExportService.export(out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    // o ETag eh lido antes do produto: se o cliente ja tem a versao atual, responde 304 sem carregar nem serializar nada
+    // senao o corpo sai pronto do cache (JSON ja serializado, comprimido com gzip se o cliente aceitar)
+    // a versao em gzip eh outra representacao, entao tem outro ETag (com o sufixo "-gzip")
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> findById(@PathVariable Long id) {
-        ProductDTO dto = productService.findById(id);
-        return ResponseEntity.ok().body(dto);
+    public ResponseEntity<byte[]> findById(@PathVariable Long id, WebRequest request) {
+        boolean gzip = productDetailCache.isGzipEnabled() && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = productService.findETag(id);
+        String representationETag = (eTag != null && gzip) ? eTag + "-gzip" : eTag;
+        if (representationETag != null && request.checkNotModified(representationETag)) {
+            return null;
+        }
+        ProductDetailCache.Entry entry = productDetailCache.get(id, eTag, () -> productService.findById(id));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(representationETag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzip());
+        }
+        return response.body(entry.json());
     }
 
     @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -63,16 +182,41 @@ public class ProductResource {
         return ResponseEntity.created(uri).body(dto);
     }
 
+    // importacao em massa: o corpo da requisicao eh o proprio arquivo, lido aos poucos
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ProductImportReportDTO> importNdjson(InputStream body) throws IOException {
+        ProductImportReportDTO report = productImportService.importNdjson(body);
+        return ResponseEntity.ok().body(report);
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ProductImportReportDTO> importCsv(InputStream body) throws IOException {
+        ProductImportReportDTO report = productImportService.importCsv(body);
+        return ResponseEntity.ok().body(report);
+    }
+
     @PostMapping(value = "/image")
     public ResponseEntity<UriDTO> uploadImage(@RequestParam("file") MultipartFile file) {
         UriDTO dto = productService.uploadFile(file);
         return ResponseEntity.ok().body(dto);
     }
 
+    // varios produtos de uma vez (sem id insere, com id atualiza), com o resultado de cada item na mesma ordem
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    public ResponseEntity<List<ProductBatchResultDTO>> upsertAll(@RequestBody List<ProductDTO> dtos) {
+        List<ProductBatchResultDTO> results = productService.upsertAll(dtos);
+        return ResponseEntity.ok().body(results);
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    // com If-Match (o ETag do GET /products/{id}), so grava se o produto nao mudou desde que o cliente o leu
     @PutMapping("/{id}")
-    public ResponseEntity<ProductDTO> update(@PathVariable Long id, @Valid @RequestBody ProductDTO dto) {
-        dto = productService.update(id, dto);
+    public ResponseEntity<ProductDTO> update(@PathVariable Long id, @Valid @RequestBody ProductDTO dto,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        dto = productService.update(id, dto, ifMatch);
         return ResponseEntity.ok().body(dto);
     }
 
@@ -82,4 +226,18 @@ public class ProductResource {
         productService.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    // "gzip" na lista do Accept-Encoding, a nao ser que venha com q=0
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
 }
@@ -3,28 +3,92 @@ package br.com.gustavo.catalog.services;
 import br.com.gustavo.catalog.dto.CategoryDTO;
 import br.com.gustavo.catalog.entities.Category;
 import br.com.gustavo.catalog.repositories.CategoryRepository;
+import br.com.gustavo.catalog.services.cache.ProductDetailCache;
+import br.com.gustavo.catalog.services.cache.ProductSearchCache;
 import br.com.gustavo.catalog.services.exceptions.DatabaseException;
 import br.com.gustavo.catalog.services.exceptions.ResourceNotFoundException;
+import br.com.gustavo.catalog.util.Utils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 @Service
 public class CategoryService {
 
+    // quantas paginas diferentes (page, size, sort) ficam serializadas em cada versao da listagem
+    private static final int MAX_SNAPSHOT_PAGES = 32;
+
     private final CategoryRepository categoryRepository;
+    private final ProductSearchCache productSearchCache;
+    private final ProductDetailCache productDetailCache;
+    private final ObjectMapper objectMapper;
+
+    private final Duration listingTtl;
+
+    // a listagem de categorias muda quase nunca e eh pedida em todo carregamento do front: cada versao guarda as
+    // paginas ja serializadas em JSON, e o ETag dela sai dos dados (quantidade + checksum de id e nome)
+    // assim todas as instancias e restarts chegam ao mesmo ETag para as mesmas categorias
+    // insert/update/delete por aqui descartam a versao depois do commit; escritas fora desta instancia
+    // (outra instancia, SQL direto) aparecem quando a versao expira e o checksum eh recalculado
+    private final AtomicReference<CategorySnapshot> snapshot = new AtomicReference<>();
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, ProductSearchCache productSearchCache,
+                           ProductDetailCache productDetailCache, ObjectMapper objectMapper,
+                           @Value("${catalog.category.listing.ttl}") Duration listingTtl) {
         this.categoryRepository = categoryRepository;
+        this.productSearchCache = productSearchCache;
+        this.productDetailCache = productDetailCache;
+        this.objectMapper = objectMapper;
+        this.listingTtl = listingTtl;
+    }
+
+    // pagina da listagem ja em JSON, com o ETag da versao de onde ela saiu
+    public record CategoryListing(String eTag, byte[] json) {
+    }
+
+    // ETag da versao atual da listagem: o resource responde 304 so com isso, sem banco e sem Jackson
+    public String listingETag() {
+        return currentSnapshot().eTag();
+    }
+
+    // mesma resposta do findAllPaged, serializada uma vez por versao e por pagina
+    // sem @Transactional: quando a pagina ja esta na versao atual nao abre transacao nem pega conexao do pool
+    public CategoryListing findAllPagedJson(Pageable pageable) {
+        CategorySnapshot current = currentSnapshot();
+        byte[] json = current.pages().get(pageable);
+        if (json == null) {
+            Page<CategoryDTO> page = categoryRepository.findAll(pageable).map(CategoryDTO::new);
+            try {
+                json = objectMapper.writeValueAsBytes(page);
+            }
+            catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+            // se uma escrita trocou a versao no meio do caminho, a pagina fica so na versao antiga, que ja foi descartada
+            if (current.pages().size() < MAX_SNAPSHOT_PAGES) {
+                current.pages().putIfAbsent(pageable, json);
+            }
+        }
+        return new CategoryListing(current.eTag(), json);
     }
 
     @Transactional(readOnly = true)
@@ -45,6 +109,7 @@ public class CategoryService {
         var category = new Category();
         category.setName(dto.getName());
         category = categoryRepository.save(category);
+        Utils.afterCommit(this::newListingVersion);
         return new CategoryDTO(category);
     }
 
@@ -54,6 +119,12 @@ public class CategoryService {
             var category = categoryRepository.getReferenceById(id);
             category.setName(dto.getName());
             category = categoryRepository.save(category);
+            // o nome da categoria vai dentro dos produtos da busca e do JSON de cada produto
+            Utils.afterCommit(() -> {
+                productSearchCache.evictCategory(id);
+                productDetailCache.evictAll();
+                newListingVersion();
+            });
             return new CategoryDTO(category);
         } catch (EntityNotFoundException e) {
             throw new ResourceNotFoundException("Categoria com id: " + id + ", não encontrado.");
@@ -67,9 +138,56 @@ public class CategoryService {
         }
         try {
             categoryRepository.deleteById(id);
+            Utils.afterCommit(() -> {
+                productSearchCache.evictCategory(id);
+                productDetailCache.evictAll();
+                newListingVersion();
+            });
         }
         catch (DataIntegrityViolationException e) {
             throw new DatabaseException("Falha de integridade referencial");
         }
     }
+
+    // synchronized com o refreshSnapshot: um recalculo que leu o banco antes do commit nao sobrescreve o descarte
+    private synchronized void newListingVersion() {
+        snapshot.set(null);
+    }
+
+    private CategorySnapshot currentSnapshot() {
+        CategorySnapshot current = snapshot.get();
+        if (current != null && System.nanoTime() - current.expiresAt() < 0) {
+            return current;
+        }
+        return refreshSnapshot();
+    }
+
+    // recalcula o ETag pelo banco; se o checksum nao mudou, a versao continua com as paginas ja serializadas
+    private synchronized CategorySnapshot refreshSnapshot() {
+        CategorySnapshot current = snapshot.get();
+        if (current != null && System.nanoTime() - current.expiresAt() < 0) {
+            return current;
+        }
+        String eTag = dataETag();
+        long expiresAt = System.nanoTime() + listingTtl.toNanos();
+        CategorySnapshot next = current != null && current.eTag().equals(eTag)
+                ? new CategorySnapshot(eTag, current.pages(), expiresAt)
+                : new CategorySnapshot(eTag, new ConcurrentHashMap<>(), expiresAt);
+        snapshot.set(next);
+        return next;
+    }
+
+    // quantidade + CRC32 do id e nome (os campos do CategoryDTO) de cada categoria, na ordem do id
+    private String dataETag() {
+        List<Category> categories = categoryRepository.findAll(Sort.by("id"));
+        CRC32 checksum = new CRC32();
+        for (Category category : categories) {
+            checksum.update((category.getId() + ":" + category.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return categories.size() + "-" + Long.toString(checksum.getValue(), 36);
+    }
+
+    // uma versao da listagem: o ETag, as paginas ja serializadas (so crescem, nunca mudam) e ate quando vale
+    private record CategorySnapshot(String eTag, Map<Pageable, byte[]> pages, long expiresAt) {
+    }
 }
@@ -0,0 +1,70 @@
+package br.com.gustavo.catalog.services;
+
+import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.entities.Product;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// exportacao do catalogo inteiro em NDJSON (um produto com as categorias por linha) para os parceiros
+// os produtos saem do cursor do banco direto para a resposta, e o contexto de persistencia eh limpo a cada lote:
+// a memoria usada nao cresce com o tamanho do catalogo
+@Service
+public class ProductExportService {
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public ProductExportService(ProductRepository productRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // escreve o catalogo no stream e devolve quantos produtos foram exportados
+    @Transactional(readOnly = true)
+    public long export(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Product> products = productRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // cada produto em uma linha; o stream da resposta eh fechado pelo Spring, nao pelo gerador
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            // os produtos vem em lotes do cursor antes de serem escritos: assim as categorias do lote inteiro
+            // sao carregadas pelo @BatchSize em poucas consultas, e nao uma por produto
+            List<Product> batch = new ArrayList<>(ProductRepository.EXPORT_FETCH_SIZE);
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == ProductRepository.EXPORT_FETCH_SIZE || !iterator.hasNext()) {
+                    for (Product product : batch) {
+                        generator.writeObject(new ProductDTO(product, product.getCategories()));
+                    }
+                    count += batch.size();
+
+                    // solta os produtos ja escritos (e as categorias deles) do contexto de persistencia
+                    generator.flush();
+                    batch.clear();
+                    entityManager.clear();
+                }
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,283 @@
+package br.com.gustavo.catalog.services;
+
+import br.com.gustavo.catalog.dto.CategoryDTO;
+import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.dto.ProductImportReportDTO;
+import br.com.gustavo.catalog.entities.Category;
+import br.com.gustavo.catalog.repositories.CategoryRepository;
+import br.com.gustavo.catalog.services.cache.ProductSearchCache;
+import br.com.gustavo.catalog.services.search.ProductIndexer;
+import br.com.gustavo.catalog.util.Utils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// importacao em massa do catalogo de um fornecedor, a partir de um arquivo CSV ou NDJSON
+// o arquivo eh lido aos poucos e gravado em lotes: cada lote eh uma transacao com dois batch inserts JDBC
+// (tb_product e tb_product_category), em vez de um insert por produto e um getReferenceById por categoria
+// registros invalidos nao interrompem a importacao: eles sao rejeitados e aparecem no relatorio com o motivo
+@Service
+public class ProductImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductImportService.class);
+
+    // produtos por lote (e por transacao)
+    static final int CHUNK_SIZE = 500;
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO tb_product (id, name, search_name, description, price, img_url, date, version) VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+    // mesma sequence (e mesmo tamanho de bloco) do @SequenceGenerator de Product: com o otimizador pooled,
+    // cada nextval reserva os ID_BLOCK_SIZE ids que terminam no valor devolvido, sem colidir com os do Hibernate
+    private static final String NEXT_PRODUCT_ID_BLOCK = "SELECT nextval('tb_product_seq')";
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String INSERT_PRODUCT_CATEGORY =
+            "INSERT INTO tb_product_category (product_id, category_id) VALUES (?, ?)";
+
+    // colunas do CSV (com cabecalho); as categorias vem como ids separados por "|" ("1|3")
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.emptySchema().withHeader();
+
+    private final ProductService productService;
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final ProductIndexer productIndexer;
+    private final ProductSearchCache productSearchCache;
+
+    public ProductImportService(ProductService productService, CategoryRepository categoryRepository, JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                ProductIndexer productIndexer, ProductSearchCache productSearchCache) {
+        this.productService = productService;
+        this.categoryRepository = categoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.productIndexer = productIndexer;
+        this.productSearchCache = productSearchCache;
+    }
+
+    // um produto por linha, no mesmo formato do JSON do POST /products (e do GET /products/export)
+    public ProductImportReportDTO importNdjson(InputStream in) throws IOException {
+        Importer importer = new Importer();
+        try (BufferedReader reader = reader(in)) {
+            long row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                row++;
+                try {
+                    importer.accept(row, objectMapper.readValue(line, ProductDTO.class));
+                }
+                catch (JsonProcessingException e) {
+                    importer.reject(row, "JSON inválido: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return importer.finish();
+    }
+
+    // cabecalho com as colunas name, description, price, imgUrl, date e categories
+    public ProductImportReportDTO importCsv(InputStream in) throws IOException {
+        Importer importer = new Importer();
+        try (MappingIterator<Map<String, String>> rows = csvMapper.readerForMapOf(String.class).with(CSV_SCHEMA).readValues(reader(in))) {
+            long row = 0;
+            while (rows.hasNextValue()) {
+                row++;
+                Map<String, String> values;
+                try {
+                    values = rows.nextValue();
+                }
+                catch (JsonProcessingException e) {
+                    // linha mal formada (ex: colunas a mais): o iterador pula para a proxima linha
+                    importer.reject(row, "Linha inválida: " + e.getOriginalMessage());
+                    continue;
+                }
+                try {
+                    importer.accept(row, fromCsv(values));
+                }
+                catch (NumberFormatException | DateTimeParseException e) {
+                    importer.reject(row, "Valor inválido: " + e.getMessage());
+                }
+            }
+        }
+        return importer.finish();
+    }
+
+    private BufferedReader reader(InputStream in) {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        return new BufferedReader(reader);
+    }
+
+    private ProductDTO fromCsv(Map<String, String> values) {
+        ProductDTO dto = new ProductDTO();
+        dto.setName(value(values, "name"));
+        dto.setDescription(value(values, "description"));
+        String price = value(values, "price");
+        dto.setPrice(price == null ? null : Double.valueOf(price));
+        dto.setImgUrl(value(values, "imgUrl"));
+        String date = value(values, "date");
+        dto.setDate(date == null ? null : Instant.parse(date));
+        String categories = value(values, "categories");
+        if (categories != null) {
+            for (String id : categories.split("\\|")) {
+                dto.getCategories().add(new CategoryDTO(Long.valueOf(id.trim()), null));
+            }
+        }
+        return dto;
+    }
+
+    // coluna vazia (ou ausente) vira null
+    private String value(Map<String, String> values, String column) {
+        String value = values.get(column);
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    // acumula os registros validos de um arquivo e grava a cada CHUNK_SIZE
+    private class Importer {
+
+        private final ProductImportReportDTO report = new ProductImportReportDTO();
+        private final Set<Long> categoryIds = categoryRepository.findAll().stream().map(Category::getId).collect(Collectors.toSet());
+        private final List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        void accept(long row, ProductDTO dto) {
+            String error = validate(dto);
+            if (error != null) {
+                reject(row, error);
+                return;
+            }
+            chunk.add(new ImportRow(row, dto));
+            if (chunk.size() == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            report.addError(row, message);
+        }
+
+        ProductImportReportDTO finish() {
+            flush();
+            LOG.info("importacao de produtos concluida: {} gravados, {} rejeitados", report.getImported(), report.getRejected());
+            return report;
+        }
+
+        // mesmas regras do POST /products (anotacoes do DTO e validateData), mais a existencia das categorias
+        // produto sem categoria eh rejeitado: as buscas so trazem produtos com categoria e ele nunca seria encontrado
+        private String validate(ProductDTO dto) {
+            String error = productService.validationError(dto);
+            if (error != null) {
+                return error;
+            }
+            if (dto.getCategories().isEmpty()) {
+                return "O produto deve ter pelo menos uma categoria.";
+            }
+            for (CategoryDTO category : dto.getCategories()) {
+                if (!categoryIds.contains(category.getId())) {
+                    return "Categoria com id: " + category.getId() + ", não encontrada.";
+                }
+            }
+            return null;
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(chunk));
+                report.addImported(chunk.size());
+            }
+            catch (DataAccessException e) {
+                // o lote inteiro volta atras, entao todos os registros dele sao rejeitados
+                String message = "Falha ao gravar o lote: " + e.getMostSpecificCause().getMessage();
+                for (ImportRow row : chunk) {
+                    reject(row.number(), message);
+                }
+            }
+            LOG.info("importacao de produtos: {} gravados, {} rejeitados ate o registro {}",
+                    report.getImported(), report.getRejected(), chunk.get(chunk.size() - 1).number());
+            chunk.clear();
+        }
+    }
+
+    private void insert(List<ImportRow> rows) {
+        List<Long> ids = reserveIds(rows.size());
+        List<Object[]> products = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ProductDTO dto = rows.get(i).dto();
+            Long id = ids.get(i);
+            // a coluna date eh sem fuso: grava no fuso da JVM, do mesmo jeito que o Hibernate grava (e le) os Instant
+            products.add(new Object[] {id, dto.getName(), Utils.normalize(dto.getName()), dto.getDescription(), dto.getPrice(),
+                    dto.getImgUrl(), dto.getDate() == null ? null : Timestamp.from(dto.getDate())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT, products);
+
+        List<Object[]> productCategories = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            for (Long categoryId : categoryIds(rows.get(i).dto())) {
+                productCategories.add(new Object[] {ids.get(i), categoryId});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_CATEGORY, productCategories);
+
+        List<ProductIndexer.IndexedProduct> indexed = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ProductDTO dto = rows.get(i).dto();
+            indexed.add(new ProductIndexer.IndexedProduct(ids.get(i), dto.getName(), dto.getDescription(), categoryIds(dto)));
+        }
+        Utils.afterCommit(() -> {
+            productIndexer.putAll(indexed);
+            productSearchCache.evictAll();
+        });
+    }
+
+    // ids para o lote, em blocos de ID_BLOCK_SIZE (uma ida ao banco por bloco)
+    private List<Long> reserveIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            long end = jdbcTemplate.queryForObject(NEXT_PRODUCT_ID_BLOCK, Long.class);
+            // o primeiro valor de uma sequence nova (1) nao tem bloco inteiro antes dele
+            for (long id = Math.max(1, end - ID_BLOCK_SIZE + 1); id <= end && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    // a mesma categoria repetida no registro ("1|1") vira uma linha so em tb_product_category
+    private List<Long> categoryIds(ProductDTO dto) {
+        return dto.getCategories().stream().map(CategoryDTO::getId).distinct().toList();
+    }
+
+    private record ImportRow(long number, ProductDTO dto) {
+    }
+}
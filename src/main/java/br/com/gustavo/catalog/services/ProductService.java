@@ -1,44 +1,92 @@
 package br.com.gustavo.catalog.services;
 
 import br.com.gustavo.catalog.dto.CategoryDTO;
+import br.com.gustavo.catalog.dto.CategoryFacetDTO;
+import br.com.gustavo.catalog.dto.CursorPageDTO;
+import br.com.gustavo.catalog.dto.ProductBatchResultDTO;
 import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.dto.ProductSuggestionDTO;
 import br.com.gustavo.catalog.dto.UriDTO;
 import br.com.gustavo.catalog.entities.Category;
 import br.com.gustavo.catalog.entities.Product;
+import br.com.gustavo.catalog.projections.CategoryCountProjection;
 import br.com.gustavo.catalog.projections.ProductProjection;
 import br.com.gustavo.catalog.repositories.CategoryRepository;
 import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.repositories.ProductSearchFilter;
+import br.com.gustavo.catalog.services.cache.ProductDetailCache;
+import br.com.gustavo.catalog.services.cache.ProductSearchCache;
 import br.com.gustavo.catalog.services.exceptions.DatabaseException;
 import br.com.gustavo.catalog.services.exceptions.InvalidDataException;
+import br.com.gustavo.catalog.services.exceptions.PreconditionFailedException;
 import br.com.gustavo.catalog.services.exceptions.ResourceNotFoundException;
+import br.com.gustavo.catalog.services.search.ProductIndexer;
+import br.com.gustavo.catalog.services.search.ProductRelevanceIndex;
+import br.com.gustavo.catalog.util.ProductCursor;
 import br.com.gustavo.catalog.util.Utils;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    // maximo de sugestoes por chamada do autocomplete
+    private static final int MAX_SUGGESTIONS = 20;
+
+    // a busca por relevancia so pagina ate os primeiros resultados (quem vai alem disso deveria refinar a busca)
+    private static final int MAX_RELEVANCE_RESULTS = 1000;
+
+    // maximo de produtos por chamada do PUT /products/batch (tudo roda em uma transacao so)
+    static final int MAX_BATCH_ITEMS = 1000;
+
+    // maximo de ids por chamada do GET /products?ids=
+    static final int MAX_IDS = 100;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final S3Service s3Service;
+    private final ProductIndexer productIndexer;
+    private final ProductSearchCache productSearchCache;
+    private final ProductDetailCache productDetailCache;
+    private final Validator validator;
+    private final CategoryService categoryService;
 
-    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository, S3Service s3Service) {
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository, S3Service s3Service,
+                          ProductIndexer productIndexer, ProductSearchCache productSearchCache,
+                          ProductDetailCache productDetailCache, Validator validator, CategoryService categoryService) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.s3Service = s3Service;
+        this.productIndexer = productIndexer;
+        this.productSearchCache = productSearchCache;
+        this.productDetailCache = productDetailCache;
+        this.validator = validator;
+        this.categoryService = categoryService;
     }
 
     @Transactional(readOnly = true)
@@ -47,37 +95,155 @@ public class ProductService {
         return list.map(ProductDTO::new);
     }
 
+    // ETag do GET /products/{id}, ou null se o produto nao existir: muda quando o produto eh gravado (versao)
+    // ou quando alguma categoria muda (versao da listagem de categorias), ja que o nome delas vai no JSON do produto
+    public String findETag(Long id) {
+        return productRepository.findVersionById(id)
+                .map(version -> id + "-" + version + "-" + categoryService.listingETag())
+                .orElse(null);
+    }
+
     @Transactional(readOnly = true)
     public ProductDTO findById(Long id) {
-        Optional<Product> obj = productRepository.findById(id);
+        Optional<Product> obj = productRepository.findWithDescriptionById(id);
         Product product = obj.orElseThrow(() -> new ResourceNotFoundException("Categoria com id: " + id + ", não encontrada."));
         return new ProductDTO(product, product.getCategories());
     }
 
+    // varios produtos pelo id (o mesmo JSON do GET /products/{id}) em uma consulta so, na ordem dos ids recebidos
+    // ids repetidos aparecem uma vez; ids inexistentes ou de produtos sem categoria ficam de fora, como nas listagens
     @Transactional(readOnly = true)
+    public List<ProductDTO> findAllByIds(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.size() > MAX_IDS) {
+            throw new IllegalArgumentException("No máximo " + MAX_IDS + " produtos por chamada.");
+        }
+        if (distinctIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Product> products = productRepository.searchProductsWithCategories(distinctIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return distinctIds.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .map(product -> new ProductDTO(product, product.getCategories()))
+                .toList();
+    }
+
     public Page<ProductDTO> findAllPaged2(String name, String categoryId, Pageable pageable) {
-        // convertendo o String categoryId em Long
-        // preparando a lista de id de categoria
-        List<Long> categoryIds = Arrays.asList();
-        if (!"0".equals(categoryId)) {
-            categoryIds = Arrays.asList(categoryId.split(",")).stream().map(Long::parseLong).toList();
+        return findAllPaged2(name, categoryId, null, null, null, null, pageable);
+    }
+
+    // sem @Transactional: um hit no cache nao precisa nem de conexao com o banco (a consulta abre a propria transacao)
+    public Page<ProductDTO> findAllPaged2(String name, String categoryId, Double minPrice, Double maxPrice,
+                                         Instant from, Instant to, Pageable pageable) {
+        ProductSearchFilter filter = newFilter(name, categoryId, minPrice, maxPrice, from, to);
+
+        return productSearchCache.get(filter, pageable, () -> {
+            // uma unica consulta traz a pagina ordenada, as categorias de cada produto e o total (COUNT(*) OVER ())
+            // antes eram tres idas ao banco: searchProducts, o countQuery dela e searchProductsWithCategories
+            return productRepository.searchProductsPage(resolveIds(filter), pageable);
+        });
+    }
+
+    // contagem de produtos por categoria para o filtro de nome, para a lateral de filtros da loja
+    // sai dos bitmaps em memoria; enquanto eles nao estao prontos, de um GROUP BY no banco
+    @Transactional(readOnly = true)
+    public List<CategoryFacetDTO> findCategoryFacets(String name) {
+        Map<Long, Long> counts = productIndexer.countByCategory(name);
+        if (counts == null) {
+            counts = productRepository.countProductsByCategory(Utils.normalize(name)).stream()
+                    .collect(Collectors.toMap(CategoryCountProjection::getCategoryId, CategoryCountProjection::getTotal));
+        }
+
+        Map<Long, Long> result = counts;
+        return categoryRepository.findAll(Sort.by("name")).stream()
+                .map(c -> new CategoryFacetDTO(c.getId(), c.getName(), result.getOrDefault(c.getId(), 0L)))
+                .toList();
+    }
+
+    // busca tolerante a erros de digitacao (mode=fuzzy): "macbok" acha "Macbook Pro"
+    // os ids vem do indice de busca aproximada e o banco so monta a pagina
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> findAllFuzzy(String name, String categoryId, Pageable pageable) {
+        List<Long> categoryIds = parseCategoryIds(categoryId);
+        List<Long> ids = name.isBlank() ? null : productIndexer.fuzzy(name, categoryIds);
+        if (ids == null) {
+            // sem texto, com o indice ainda nao montado ou com ids demais para o IN, fica a busca normal
+            return productRepository.searchProductsPage(resolveIds(new ProductSearchFilter(categoryIds, name)), pageable);
+        }
+
+        ProductSearchFilter filter = new ProductSearchFilter(List.of(), name);
+        filter.setProductIds(ids);
+        return productRepository.searchProductsPage(filter, pageable);
+    }
+
+    // busca ordenada por relevancia (mode=relevance): BM25 sobre nome e descricao, calculado no indice em memoria
+    // o sort do Pageable eh ignorado, a ordem eh a da nota de cada produto
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> findAllByRelevance(String name, String categoryId, Pageable pageable) {
+        List<Long> categoryIds = parseCategoryIds(categoryId);
+        int k = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), MAX_RELEVANCE_RESULTS);
+        ProductRelevanceIndex.TopProducts top = name.isBlank() ? null : productIndexer.relevance(name, categoryIds, k);
+        if (top == null) {
+            // sem texto ou com o indice ainda nao montado, fica a busca normal
+            return findAllPaged2(name, categoryId, pageable);
+        }
+
+        List<Long> pageIds = top.ids().stream().skip(pageable.getOffset()).toList();
+        List<ProductDTO> content = productRepository.searchProductsByIds(pageIds);
+        return new PageImpl<>(content, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()),
+                Math.min(top.total(), MAX_RELEVANCE_RESULTS));
+    }
+
+    // autocomplete: nomes de produtos pelo prefixo digitado, direto do indice em memoria (sem ir ao banco)
+    public List<ProductSuggestionDTO> findSuggestions(String prefix, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        Map<Long, String> suggestions = productIndexer.suggest(prefix, size);
+        if (suggestions == null) {
+            return productRepository.suggestProductNames(Utils.normalize(prefix), PageRequest.of(0, size)).stream()
+                    .map(p -> new ProductSuggestionDTO(p.getId(), p.getName()))
+                    .toList();
         }
+        return suggestions.entrySet().stream()
+                .map(e -> new ProductSuggestionDTO(e.getKey(), e.getValue()))
+                .toList();
+    }
 
-        // faz a consulta original da pagina
-        Page<ProductProjection> page = productRepository.searchProducts(categoryIds, name, pageable);
-        // pega os ids dos produtos
-        List<Long> productIds = page.map(x -> x.getId()).toList();
+    // variante sem total: para clientes que so precisam saber se existe proxima pagina
+    public Slice<ProductDTO> findAllSliced(String name, String categoryId, Pageable pageable) {
+        return findAllSliced(name, categoryId, null, null, null, null, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<ProductDTO> findAllSliced(String name, String categoryId, Double minPrice, Double maxPrice,
+                                           Instant from, Instant to, Pageable pageable) {
+        ProductSearchFilter filter = newFilter(name, categoryId, minPrice, maxPrice, from, to);
+        return productRepository.searchProductsSlice(resolveIds(filter), pageable);
+    }
 
-        // usando os ids dos produtos como argumento pra chamar os produtos com as categorias, buscando tudo
-        List<Product> entities = productRepository.searchProductsWithCategories(productIds);
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> findAllCursor(String name, String categoryId, String after, int size) {
+        List<Long> categoryIds = parseCategoryIds(categoryId);
+        ProductCursor cursor = (after == null || after.isBlank()) ? ProductCursor.FIRST : ProductCursor.decode(after);
 
-        entities = (List<Product>) Utils.replace(page.getContent(), entities);
+        // buscamos um produto a mais so pra saber se existe proxima pagina, sem precisar do count
+        List<ProductProjection> rows = productRepository.searchProductsAfter(categoryIds, Utils.normalize(name), cursor.getName(), cursor.getId(), size + 1);
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
 
-        // convertendo entities para dto
-        List<ProductDTO> dtos = entities.stream().map(p -> new ProductDTO(p, p.getCategories())).toList();
+        List<Long> productIds = rows.stream().map(ProductProjection::getId).toList();
+        List<ProductDTO> dtos = productRepository.searchProductsByIds(productIds);
 
-        // e por ultimo geramos o novo objeto de pagina aproveitando a primeira pagina (Page<ProductProjection> page)
-        return new PageImpl<>(dtos, page.getPageable(), page.getTotalElements());
+        String next = null;
+        if (hasNext) {
+            ProductProjection last = rows.get(rows.size() - 1);
+            next = new ProductCursor(last.getName(), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(dtos, size, next);
     }
 
     @Transactional
@@ -86,29 +252,134 @@ public class ProductService {
         Product product = new Product();
         copyDtoToEntity(dto, product);
         product = productRepository.save(product);
+        afterSave(product, null, null);
         return new ProductDTO(product);
     }
 
     @Transactional
     public ProductDTO update(Long id, ProductDTO dto) {
+        return update(id, dto, null);
+    }
+
+    // ifMatch eh o cabecalho If-Match (null quando nao veio): o produto so eh gravado se ainda estiver na versao
+    // de algum dos ETags; uma escrita concorrente entre a leitura e o commit ainda eh barrada pelo @Version
+    @Transactional
+    public ProductDTO update(Long id, ProductDTO dto, String ifMatch) {
         try {
             validateData(dto);
             var product = productRepository.getReferenceById(id);
+            if (ifMatch != null && !matchesETag(product, ifMatch)) {
+                throw new PreconditionFailedException("Produto com id: " + id + " foi alterado desde a última leitura.");
+            }
+            String oldName = product.getName();
+            List<Long> oldCategoryIds = categoryIds(product);
             copyDtoToEntity(dto, product);
             product = productRepository.save(product);
+            afterSave(product, oldName, oldCategoryIds);
             return new ProductDTO(product);
         } catch (EntityNotFoundException e) {
             throw new ResourceNotFoundException("Categoria com id: " + id + ", não encontrado.");
         }
     }
 
+    // insere (sem id) ou atualiza (com id) varios produtos em uma transacao, devolvendo o resultado de cada item
+    // produtos e categorias sao lidos em poucas consultas, as categorias sao comparadas em vez de recriadas,
+    // e os inserts e updates saem em batches JDBC no flush; itens invalidos ou inexistentes nao impedem os outros
+    @Transactional
+    public List<ProductBatchResultDTO> upsertAll(List<ProductDTO> dtos) {
+        if (dtos.size() > MAX_BATCH_ITEMS) {
+            throw new IllegalArgumentException("No máximo " + MAX_BATCH_ITEMS + " produtos por lote.");
+        }
+
+        Set<Long> ids = dtos.stream().map(ProductDTO::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Set<Long> categoryIds = dtos.stream().flatMap(dto -> dto.getCategories().stream()).map(CategoryDTO::getId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Category> categories = categoryRepository.loadAllById(categoryIds).stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+
+        List<ProductBatchResultDTO> results = new ArrayList<>(dtos.size());
+        List<Product> saved = new ArrayList<>();
+        List<ProductDTO> savedDtos = new ArrayList<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            ProductDTO dto = dtos.get(i);
+            String error = validationError(dto);
+            Set<Category> productCategories = new HashSet<>();
+            for (CategoryDTO categoryDTO : dto.getCategories()) {
+                Category category = categories.get(categoryDTO.getId());
+                if (category == null) {
+                    error = "Categoria com id: " + categoryDTO.getId() + ", não encontrada.";
+                    break;
+                }
+                productCategories.add(category);
+            }
+            if (error != null) {
+                results.add(new ProductBatchResultDTO(i, dto.getId(), ProductBatchResultDTO.Status.INVALID, error));
+                continue;
+            }
+
+            Product product;
+            ProductBatchResultDTO.Status status;
+            if (dto.getId() == null) {
+                product = new Product();
+                status = ProductBatchResultDTO.Status.CREATED;
+            }
+            else {
+                product = products.get(dto.getId());
+                if (product == null) {
+                    results.add(new ProductBatchResultDTO(i, dto.getId(), ProductBatchResultDTO.Status.NOT_FOUND,
+                            "Produto com id: " + dto.getId() + ", não encontrado."));
+                    continue;
+                }
+                status = ProductBatchResultDTO.Status.UPDATED;
+            }
+            copyFieldsToEntity(dto, product);
+            updateCategories(product, productCategories);
+            if (product.getId() == null) {
+                product = productRepository.save(product);
+            }
+            saved.add(product);
+            savedDtos.add(dto);
+            results.add(new ProductBatchResultDTO(i, product.getId(), status, null));
+        }
+
+        // um lote mexe em muitas buscas: os indices recebem o lote inteiro e o cache eh limpo de uma vez
+        // (nome e descricao vem dos DTOs, que acabaram de ser copiados para os produtos)
+        List<ProductIndexer.IndexedProduct> indexed = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            Product product = saved.get(i);
+            ProductDTO dto = savedDtos.get(i);
+            indexed.add(new ProductIndexer.IndexedProduct(product.getId(), dto.getName(), dto.getDescription(), categoryIds(product)));
+        }
+        Utils.afterCommit(() -> {
+            productIndexer.putAll(indexed);
+            indexed.forEach(product -> productDetailCache.evict(product.id()));
+            productSearchCache.evictAll();
+        });
+        return results;
+    }
+
     @Transactional(propagation = Propagation.SUPPORTS)
     public void delete(Long id) {
         if (!productRepository.existsById(id)) {
             throw new ResourceNotFoundException("Recurso não encontrado");
         }
         try {
+            // estado antigo do produto (vindo dos indices) para saber quais buscas em cache ele afeta
+            String oldName = productIndexer.nameOf(id);
+            Set<Long> oldCategoryIds = productIndexer.categoriesOf(id);
             productRepository.deleteById(id);
+            Utils.afterCommit(() -> {
+                productIndexer.remove(id);
+                productDetailCache.evict(id);
+                if (oldName == null) {
+                    productSearchCache.evictAll();
+                }
+                else {
+                    productSearchCache.evictProduct(id, oldName, oldCategoryIds);
+                }
+            });
         }
         catch (DataIntegrityViolationException e) {
             throw new DatabaseException("Falha de integridade referencial");
@@ -116,7 +387,7 @@ public class ProductService {
     }
 
     protected void validateData(ProductDTO dto) {
-        if (dto.getName().isBlank()) {
+        if (dto.getName() == null || dto.getName().isBlank()) {
             throw new InvalidDataException("Campo nome é vazio ou nulo");
         }
         if (dto.getPrice() == null || dto.getPrice() <= 0) {
@@ -125,18 +396,120 @@ public class ProductService {
         return;
     }
 
+    // mesmas regras do POST/PUT (anotacoes do DTO e validateData), para quem recebe varios produtos e
+    // precisa rejeitar so o item invalido; devolve a mensagem de erro ou null se o produto for valido
+    protected String validationError(ProductDTO dto) {
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        try {
+            validateData(dto);
+        }
+        catch (InvalidDataException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
     private void copyDtoToEntity(ProductDTO dto, Product entity) {
+        copyFieldsToEntity(dto, entity);
+        updateCategories(entity, findCategories(dto));
+    }
+
+    // todas as categorias do produto vindas do cache de segundo nivel (as que faltarem, em uma consulta so com IN),
+    // falhando se algum id nao existir
+    private Set<Category> findCategories(ProductDTO dto) {
+        Set<Long> ids = dto.getCategories().stream().map(CategoryDTO::getId).collect(Collectors.toSet());
+        List<Category> categories = categoryRepository.loadAllById(ids);
+        if (categories.size() < ids.size()) {
+            Set<Long> found = categories.stream().map(Category::getId).collect(Collectors.toSet());
+            Long missing = ids.stream().filter(id -> !found.contains(id)).findFirst().orElseThrow();
+            throw new ResourceNotFoundException("Categoria com id: " + missing + ", não encontrada.");
+        }
+        return new HashSet<>(categories);
+    }
+
+    private void copyFieldsToEntity(ProductDTO dto, Product entity) {
         entity.setName(dto.getName());
         entity.setDescription(dto.getDescription());
         entity.setDate(dto.getDate());
         entity.setPrice(dto.getPrice());
         entity.setImgUrl(dto.getImgUrl());
+    }
+
+    // aplica so a diferenca entre as categorias atuais e as novas: o Hibernate remove e insere apenas as linhas
+    // que mudaram em tb_product_category, em vez de apagar todas e inserir de novo
+    private void updateCategories(Product entity, Set<Category> categories) {
+        entity.getCategories().retainAll(categories);
+        entity.getCategories().addAll(categories);
+    }
+
+    private ProductSearchFilter newFilter(String name, String categoryId, Double minPrice, Double maxPrice,
+                                          Instant from, Instant to) {
+        ProductSearchFilter filter = new ProductSearchFilter(parseCategoryIds(categoryId), name);
+        filter.setMinPrice(minPrice);
+        filter.setMaxPrice(maxPrice);
+        filter.setFrom(from);
+        filter.setTo(to);
+        return filter;
+    }
+
+    // os filtros de nome e categoria sao resolvidos pelos indices em memoria e vao pro banco como lista de ids
+    // quando os indices nao conseguem responder, os filtros continuam sendo o LIKE e o IN de categorias no banco
+    // (as faixas de preco e data sempre ficam com o banco)
+    private ProductSearchFilter resolveIds(ProductSearchFilter filter) {
+        List<Long> ids = productIndexer.resolve(filter.getName(), filter.getCategoryIds());
+        if (ids != null) {
+            filter.setProductIds(ids);
+            filter.setCategoryIds(List.of());
+        }
+        return filter;
+    }
+
+    // depois do commit: atualiza os indices em memoria e tira do cache as buscas afetadas pelo estado antigo e pelo novo
+    private void afterSave(Product product, String oldName, List<Long> oldCategoryIds) {
+        Long id = product.getId();
+        String name = product.getName();
+        String description = product.getDescription();
+        List<Long> categoryIds = categoryIds(product);
+        Utils.afterCommit(() -> {
+            productIndexer.put(id, name, description, categoryIds);
+            productDetailCache.evict(id);
+            if (oldName != null) {
+                productSearchCache.evictProduct(id, oldName, oldCategoryIds);
+            }
+            productSearchCache.evictProduct(id, name, categoryIds);
+        });
+    }
+
+    // comparacao forte do If-Match: "*" ou um ETag (sem W/) do produto na versao atual, com qualquer versao
+    // das categorias e com ou sem o sufixo da representacao em gzip (ver findETag)
+    private boolean matchesETag(Product product, String ifMatch) {
+        String prefix = "\"" + product.getId() + "-" + product.getVersion() + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || (tag.startsWith(prefix) && tag.endsWith("\""))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Long> categoryIds(Product product) {
+        return product.getCategories().stream().map(Category::getId).toList();
+    }
 
-        entity.getCategories().clear();
-        for (CategoryDTO categoryDTO : dto.getCategories()) {
-            var category = categoryRepository.getReferenceById(categoryDTO.getId());
-            entity.getCategories().add(category);
+    // convertendo o String categoryId ("1,3") em Long
+    // "0" quer dizer sem filtro de categoria
+    private List<Long> parseCategoryIds(String categoryId) {
+        if ("0".equals(categoryId)) {
+            return Arrays.asList();
         }
+        return Arrays.asList(categoryId.split(",")).stream().map(Long::parseLong).toList();
     }
 
     public UriDTO uploadFile(MultipartFile file) {
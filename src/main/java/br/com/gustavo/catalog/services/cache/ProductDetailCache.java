@@ -0,0 +1,98 @@
+package br.com.gustavo.catalog.services.cache;
+
+import br.com.gustavo.catalog.dto.ProductDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// cache do JSON do GET /products/{id} ja serializado (UTF-8), e opcionalmente ja comprimido com gzip,
+// para os produtos mais acessados nao passarem de novo pelo banco, pelo ProductDTO e pelo Jackson a cada requisicao
+// limitado por tamanho (os menos usados saem primeiro) e preenchido conforme os produtos sao pedidos
+// cada entrada guarda o ETag com que foi montada: se o produto ou alguma categoria mudou, ela eh montada de novo
+// hits/misses ficam em /actuator/metrics/cache.gets?tag=cache:productDetail
+@Component
+public class ProductDetailCache {
+
+    private final boolean enabled;
+    private final boolean gzip;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, Entry> cache;
+
+    public ProductDetailCache(@Value("${catalog.product.cache.enabled}") boolean enabled,
+                              @Value("${catalog.product.cache.max-size}") long maxSize,
+                              @Value("${catalog.product.cache.gzip}") boolean gzip,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.gzip = gzip;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productDetail");
+    }
+
+    public boolean isGzipEnabled() {
+        return gzip;
+    }
+
+    // eTag eh o ETag atual do produto; null quando ele ainda nao existia ao ler o ETag (a resposta nao vai para o cache)
+    public Entry get(Long id, String eTag, Supplier<ProductDTO> loader) {
+        if (enabled && eTag != null) {
+            Entry entry = cache.getIfPresent(id);
+            if (entry != null && entry.eTag().equals(eTag)) {
+                return entry;
+            }
+        }
+
+        Entry entry = serialize(eTag, loader.get());
+        if (enabled && eTag != null) {
+            cache.put(id, entry);
+        }
+        return entry;
+    }
+
+    public void evict(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private Entry serialize(String eTag, ProductDTO dto) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(dto);
+            return new Entry(eTag, json, gzip ? compress(json) : null);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar o produto " + dto.getId(), e);
+        }
+    }
+
+    private byte[] compress(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 2);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(json);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // json e gzip sao o mesmo corpo (gzip eh null quando a compressao esta desligada)
+    public record Entry(String eTag, byte[] json, byte[] gzip) {
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.gustavo.catalog.services.cache;
+
+import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.repositories.ProductSearchFilter;
+import br.com.gustavo.catalog.util.Utils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// cache das paginas da busca de produtos (findAllPaged2), limitado por tamanho e por tempo
+// a chave eh a busca normalizada; as escritas em produto e categoria removem so as paginas que podem ter mudado
+// buscas iguais ao mesmo tempo viram uma consulta so no banco (mesmo com o cache desligado)
+// hits/misses ficam em /actuator/metrics/cache.gets?tag=cache:productSearch
+// e as buscas que esperaram outra igual em /actuator/metrics/catalog.search.coalesced
+@Component
+public class ProductSearchCache {
+
+    private final boolean enabled;
+    private final Cache<SearchKey, Page<ProductDTO>> cache;
+
+    // muda a cada invalidacao: uma busca que comecou antes de uma escrita nao pode guardar resultado velho
+    private final AtomicLong generation = new AtomicLong();
+
+    // buscas em andamento: quem chega com a mesma chave espera o resultado da primeira em vez de ir ao banco
+    private final ConcurrentHashMap<SearchKey, CompletableFuture<Page<ProductDTO>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    @Autowired
+    public ProductSearchCache(@Value("${catalog.search.cache.enabled}") boolean enabled,
+                              @Value("${catalog.search.cache.max-size}") long maxSize,
+                              @Value("${catalog.search.cache.ttl}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this(enabled, maxSize, ttl, meterRegistry, Ticker.systemTicker());
+    }
+
+    // o relogio do cache eh lido no inicio de cada put: os testes usam isso para encaixar uma escrita nesse ponto
+    ProductSearchCache(boolean enabled, long maxSize, Duration ttl, MeterRegistry meterRegistry, Ticker ticker) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productSearch");
+        this.coalesced = meterRegistry.counter("catalog.search.coalesced");
+    }
+
+    public Page<ProductDTO> get(ProductSearchFilter filter, Pageable pageable, Supplier<Page<ProductDTO>> loader) {
+        SearchKey key = new SearchKey(Utils.normalize(filter.getName()), filter.getCategoryIds().stream().distinct().sorted().toList(),
+                filter.getMinPrice(), filter.getMaxPrice(), filter.getFrom(), filter.getTo(),
+                pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+        if (enabled) {
+            Page<ProductDTO> page = cache.getIfPresent(key);
+            if (page != null) {
+                return page;
+            }
+        }
+
+        CompletableFuture<Page<ProductDTO>> flight = new CompletableFuture<>();
+        CompletableFuture<Page<ProductDTO>> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        try {
+            long start = generation.get();
+            Page<ProductDTO> page = loader.get();
+            if (enabled && generation.get() == start) {
+                cache.put(key, page);
+                // uma escrita entre a checagem acima e o put nao achou a pagina para remover:
+                // conferindo de novo depois do put, quem perdeu a corrida tira a pagina do cache
+                if (generation.get() != start) {
+                    cache.invalidate(key);
+                }
+            }
+            flight.complete(page);
+            return page;
+        }
+        catch (RuntimeException e) {
+            // quem estava esperando recebe o mesmo erro
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private Page<ProductDTO> await(CompletableFuture<Page<ProductDTO>> flight) {
+        try {
+            return flight.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // remove as buscas que podem conter o produto: filtro que casa com o nome/categorias dele, ou pagina onde ele aparece
+    // chamado com o estado antigo e com o estado novo do produto
+    public void evictProduct(Long productId, String name, Collection<Long> categoryIds) {
+        invalidate();
+        String normalized = Utils.normalize(name);
+        cache.asMap().entrySet().removeIf(e -> e.getKey().matches(normalized, categoryIds)
+                || e.getValue().getContent().stream().anyMatch(p -> p.getId().equals(productId)));
+    }
+
+    // remove as buscas filtradas pela categoria ou que mostram algum produto dela (nome da categoria vai no ProductDTO)
+    public void evictCategory(Long categoryId) {
+        invalidate();
+        cache.asMap().entrySet().removeIf(e -> e.getKey().categoryIds().contains(categoryId)
+                || e.getValue().getContent().stream()
+                        .anyMatch(p -> p.getCategories().stream().anyMatch(c -> c.getId().equals(categoryId))));
+    }
+
+    public void evictAll() {
+        invalidate();
+        cache.invalidateAll();
+    }
+
+    // as buscas em andamento comecaram antes da escrita: quem chegar depois dela nao pode pegar carona nelas
+    private void invalidate() {
+        generation.incrementAndGet();
+        inFlight.clear();
+    }
+
+    private record SearchKey(String name, List<Long> categoryIds, Double minPrice, Double maxPrice, Instant from, Instant to,
+                             int page, int size, String sort) {
+
+        // o produto aparece nessa busca se o nome dele contem o filtro e ele esta em alguma das categorias filtradas
+        // (as faixas de preco/data nao entram: na duvida a busca sai do cache, ja que o preco pode ter mudado)
+        boolean matches(String productName, Collection<Long> productCategoryIds) {
+            return productName.contains(name)
+                    && (categoryIds.isEmpty() || categoryIds.stream().anyMatch(productCategoryIds::contains));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.gustavo.catalog.services.exceptions;
+
+public class PreconditionFailedException extends RuntimeException{
+    private static final long serialVersionUID = 1L;
+
+    public PreconditionFailedException(String msg) {
+        super(msg);
+    }
+}
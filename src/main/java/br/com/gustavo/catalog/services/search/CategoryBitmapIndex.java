@@ -0,0 +1,184 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductCategoryProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// um bitmap comprimido (Roaring) de ids de produto por categoria, em memoria
+// filtro por varias categorias vira um OR de bitmaps, sem o JOIN + IN + DISTINCT no banco
+@Component
+public class CategoryBitmapIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CategoryBitmapIndex.class);
+
+    private final ProductRepository productRepository;
+
+    // categoria -> produtos da categoria
+    private final Map<Long, Roaring64Bitmap> bitmaps = new HashMap<>();
+
+    // produto -> categorias do produto, para saber de quais bitmaps tirar o produto quando ele muda
+    private final Map<Long, Set<Long>> productCategories = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public CategoryBitmapIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        List<ProductCategoryProjection> associations = productRepository.searchProductCategories();
+        lock.writeLock().lock();
+        try {
+            bitmaps.clear();
+            productCategories.clear();
+            for (ProductCategoryProjection association : associations) {
+                bitmaps.computeIfAbsent(association.getCategoryId(), id -> new Roaring64Bitmap()).addLong(association.getProductId());
+                productCategories.computeIfAbsent(association.getProductId(), id -> new HashSet<>()).add(association.getCategoryId());
+            }
+            bitmaps.values().forEach(Roaring64Bitmap::runOptimize);
+            ready = true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        LOG.info("bitmaps de categoria montados para {} categorias", bitmaps.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Set<Long> categoriesOf(Long productId) {
+        lock.readLock().lock();
+        try {
+            return productCategories.getOrDefault(productId, Set.of());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // troca as categorias do produto, mexendo so nos bitmaps que mudaram
+    public void put(Long productId, Collection<Long> categoryIds) {
+        lock.writeLock().lock();
+        try {
+            replace(productId, categoryIds);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(Collection<ProductIndexer.IndexedProduct> products) {
+        lock.writeLock().lock();
+        try {
+            for (ProductIndexer.IndexedProduct product : products) {
+                replace(product.id(), product.categoryIds());
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        put(productId, Set.of());
+    }
+
+    // produtos que estao em pelo menos uma das categorias (OR dos bitmaps)
+    // categoryIds vazio quer dizer qualquer categoria, igual ao semi-join da busca
+    public Roaring64Bitmap anyOf(Collection<Long> categoryIds) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap result = new Roaring64Bitmap();
+            Collection<Long> selected = categoryIds.isEmpty() ? bitmaps.keySet() : categoryIds;
+            for (Long categoryId : selected) {
+                Roaring64Bitmap bitmap = bitmaps.get(categoryId);
+                if (bitmap != null) {
+                    result.or(bitmap);
+                }
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // quantos produtos existem em cada categoria (cardinalidade de cada bitmap)
+    public Map<Long, Long> countByCategory() {
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> counts = new HashMap<>();
+            bitmaps.forEach((categoryId, bitmap) -> counts.put(categoryId, bitmap.getLongCardinality()));
+            return counts;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // quantos dos produtos informados existem em cada categoria, em uma passada so pelos produtos
+    public Map<Long, Long> countByCategory(long[] productIds) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> counts = new HashMap<>();
+            for (long productId : productIds) {
+                for (Long categoryId : productCategories.getOrDefault(productId, Set.of())) {
+                    counts.merge(categoryId, 1L, Long::sum);
+                }
+            }
+            return counts;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void replace(Long productId, Collection<Long> categoryIds) {
+        Set<Long> current = productCategories.getOrDefault(productId, Set.of());
+        for (Long categoryId : current) {
+            if (!categoryIds.contains(categoryId)) {
+                removeFromBitmap(categoryId, productId);
+            }
+        }
+        for (Long categoryId : categoryIds) {
+            if (!current.contains(categoryId)) {
+                bitmaps.computeIfAbsent(categoryId, id -> new Roaring64Bitmap()).addLong(productId);
+            }
+        }
+        if (categoryIds.isEmpty()) {
+            productCategories.remove(productId);
+        }
+        else {
+            productCategories.put(productId, Set.copyOf(categoryIds));
+        }
+    }
+
+    private void removeFromBitmap(Long categoryId, Long productId) {
+        Roaring64Bitmap bitmap = bitmaps.get(categoryId);
+        if (bitmap != null) {
+            bitmap.removeLong(productId);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(categoryId);
+            }
+        }
+    }
+}
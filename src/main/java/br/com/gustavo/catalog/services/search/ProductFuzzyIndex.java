@@ -0,0 +1,256 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// busca tolerante a erros de digitacao ("macbok", "notbook") pelas palavras dos nomes dos produtos
+// symmetric delete: cada palavra do catalogo eh guardada tambem com 1 e 2 letras apagadas; na busca, as variantes
+// da palavra digitada (tambem com letras apagadas) acham as candidatas direto no mapa, sem percorrer todos os nomes,
+// e so as candidatas passam pelo calculo da distancia de edicao
+@Component
+public class ProductFuzzyIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductFuzzyIndex.class);
+
+    // maior distancia de edicao aceita (e quantas letras sao apagadas das palavras do catalogo)
+    private static final int MAX_DISTANCE = 2;
+
+    private final ProductRepository productRepository;
+
+    // palavra -> produtos que tem a palavra no nome
+    private final Map<String, Set<Long>> products = new HashMap<>();
+
+    // produto -> palavras do nome (para as escritas saberem o que remover)
+    private final Map<Long, Set<String>> words = new HashMap<>();
+
+    // palavra com ate MAX_DISTANCE letras apagadas -> palavras do catalogo que geram essa variante
+    private final Map<String, Set<String>> deletes = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public ProductFuzzyIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        List<ProductProjection> names = productRepository.searchProductNames();
+        lock.writeLock().lock();
+        try {
+            products.clear();
+            words.clear();
+            deletes.clear();
+            for (ProductProjection product : names) {
+                add(product.getId(), product.getName());
+            }
+            ready = true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        LOG.info("indice de busca aproximada montado com {} palavras e {} variantes", products.size(), deletes.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(Long id, String name) {
+        lock.writeLock().lock();
+        try {
+            remove(id, words.get(id));
+            add(id, name);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(Collection<ProductIndexer.IndexedProduct> products) {
+        lock.writeLock().lock();
+        try {
+            for (ProductIndexer.IndexedProduct product : products) {
+                remove(product.id(), words.get(product.id()));
+                add(product.id(), product.name());
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id, words.get(id));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ids (ordenados) dos produtos em que cada palavra do texto casa com alguma palavra do nome,
+    // a no maximo 1 erro (palavras de 3 e 4 letras) ou 2 erros (5 letras ou mais); palavras menores so casam exatas
+    public long[] search(String text) {
+        Set<String> queryWords = tokenize(text);
+        if (queryWords.isEmpty()) {
+            return new long[0];
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Long> result = null;
+            for (String queryWord : queryWords) {
+                Set<Long> matches = new HashSet<>();
+                for (String word : similarWords(queryWord)) {
+                    matches.addAll(products.get(word));
+                }
+                if (result == null) {
+                    result = matches;
+                }
+                else {
+                    result.retainAll(matches);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<String> similarWords(String queryWord) {
+        int maxDistance = maxDistance(queryWord);
+        Set<String> candidates = new HashSet<>();
+        for (String variant : variants(queryWord, maxDistance)) {
+            Set<String> found = deletes.get(variant);
+            if (found != null) {
+                candidates.addAll(found);
+            }
+        }
+        candidates.removeIf(word -> distance(queryWord, word, maxDistance) > maxDistance);
+        return candidates;
+    }
+
+    private void add(Long id, String name) {
+        Set<String> nameWords = tokenize(name);
+        words.put(id, nameWords);
+        for (String word : nameWords) {
+            Set<Long> ids = products.computeIfAbsent(word, w -> new HashSet<>());
+            if (ids.isEmpty()) {
+                for (String variant : variants(word, MAX_DISTANCE)) {
+                    deletes.computeIfAbsent(variant, v -> new HashSet<>()).add(word);
+                }
+            }
+            ids.add(id);
+        }
+    }
+
+    private void remove(Long id, Set<String> nameWords) {
+        if (nameWords == null) {
+            return;
+        }
+        words.remove(id);
+        for (String word : nameWords) {
+            Set<Long> ids = products.get(word);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                // ultima ocorrencia da palavra: sai do dicionario e das variantes
+                products.remove(word);
+                for (String variant : variants(word, MAX_DISTANCE)) {
+                    Set<String> found = deletes.get(variant);
+                    found.remove(word);
+                    if (found.isEmpty()) {
+                        deletes.remove(variant);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int maxDistance(String word) {
+        if (word.length() < 3) {
+            return 0;
+        }
+        return word.length() < 5 ? 1 : MAX_DISTANCE;
+    }
+
+    private static Set<String> tokenize(String text) {
+        return new TreeSet<>(Utils.tokenize(text));
+    }
+
+    // a palavra e todas as formas com ate "distance" letras apagadas (sem chegar a vazio)
+    private static Set<String> variants(String word, int distance) {
+        Set<String> result = new HashSet<>();
+        result.add(word);
+        Set<String> level = Set.of(word);
+        for (int d = 0; d < distance; d++) {
+            Set<String> next = new HashSet<>();
+            for (String w : level) {
+                if (w.length() <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < w.length(); i++) {
+                    next.add(w.substring(0, i) + w.substring(i + 1));
+                }
+            }
+            result.addAll(next);
+            level = next;
+        }
+        return result;
+    }
+
+    // distancia de edicao (insercao, remocao, troca e inversao de letras vizinhas); para de calcular acima do limite
+    static int distance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.gustavo.catalog.services.search;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// ponto unico de acesso aos indices em memoria dos produtos:
+// o ProductService manda as escritas pra ca e pergunta quais ids passam nos filtros da busca
+@Component
+public class ProductIndexer {
+
+    // acima disso o IN com os ids fica maior que o ganho, e os filtros voltam a ser feitos no banco
+    static final int MAX_INDEXED_IDS = 1000;
+
+    private final ProductSearchIndex productSearchIndex;
+    private final CategoryBitmapIndex categoryBitmapIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductFuzzyIndex productFuzzyIndex;
+    private final ProductRelevanceIndex productRelevanceIndex;
+
+    public ProductIndexer(ProductSearchIndex productSearchIndex, CategoryBitmapIndex categoryBitmapIndex,
+                          ProductSuggestIndex productSuggestIndex, ProductFuzzyIndex productFuzzyIndex,
+                          ProductRelevanceIndex productRelevanceIndex) {
+        this.productSearchIndex = productSearchIndex;
+        this.categoryBitmapIndex = categoryBitmapIndex;
+        this.productSuggestIndex = productSuggestIndex;
+        this.productFuzzyIndex = productFuzzyIndex;
+        this.productRelevanceIndex = productRelevanceIndex;
+    }
+
+    public void put(Long productId, String name, String description, Collection<Long> categoryIds) {
+        productSearchIndex.put(productId, name);
+        categoryBitmapIndex.put(productId, categoryIds);
+        productSuggestIndex.put(productId, name);
+        productFuzzyIndex.put(productId, name);
+        productRelevanceIndex.put(productId, name, description);
+    }
+
+    // varios produtos de uma vez (importacao, lote): cada indice pega o lock uma vez so
+    // e o de sugestoes monta o array uma vez para o lote inteiro, em vez de uma por produto
+    public void putAll(Collection<IndexedProduct> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        productSearchIndex.putAll(products);
+        categoryBitmapIndex.putAll(products);
+        productSuggestIndex.putAll(products);
+        productFuzzyIndex.putAll(products);
+        productRelevanceIndex.putAll(products);
+    }
+
+    public void remove(Long productId) {
+        productSearchIndex.remove(productId);
+        categoryBitmapIndex.remove(productId);
+        productSuggestIndex.remove(productId);
+        productFuzzyIndex.remove(productId);
+        productRelevanceIndex.remove(productId);
+    }
+
+    // id -> nome dos produtos que comecam (ou tem uma palavra que comeca) pelo prefixo
+    // devolve null quando o indice ainda nao foi montado
+    public Map<Long, String> suggest(String prefix, int limit) {
+        if (!productSuggestIndex.isReady()) {
+            return null;
+        }
+        return productSuggestIndex.suggest(prefix, limit);
+    }
+
+    // nome (normalizado) do produto como esta no indice; null quando o produto nao esta indexado
+    public String nameOf(Long productId) {
+        return productSearchIndex.nameOf(productId);
+    }
+
+    public Set<Long> categoriesOf(Long productId) {
+        return categoryBitmapIndex.categoriesOf(productId);
+    }
+
+    // ids (ordenados) que passam nos filtros de nome e categoria, resolvidos so em memoria:
+    // OR dos bitmaps das categorias, intersecao com os ids do indice de nomes
+    // devolve null quando o banco deve filtrar: sem filtro, indice ainda nao montado ou ids demais
+    public List<Long> resolve(String name, List<Long> categoryIds) {
+        boolean byName = !name.isBlank();
+        boolean byCategory = !categoryIds.isEmpty();
+        if ((!byName && !byCategory)
+                || (byName && !productSearchIndex.isReady())
+                || (byCategory && !categoryBitmapIndex.isReady())) {
+            return null;
+        }
+
+        long[] ids;
+        if (byName) {
+            ids = productSearchIndex.search(name);
+            if (byCategory) {
+                Roaring64Bitmap inCategories = categoryBitmapIndex.anyOf(categoryIds);
+                ids = Arrays.stream(ids).filter(inCategories::contains).toArray();
+            }
+        }
+        else {
+            ids = categoryBitmapIndex.anyOf(categoryIds).toArray();
+        }
+
+        if (ids.length > MAX_INDEXED_IDS) {
+            return null;
+        }
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    // ids (ordenados) da busca tolerante a erros de digitacao, ja filtrados pelas categorias
+    // devolve null quando os indices ainda nao foram montados ou quando casam ids demais (palavra curta ou muito comum)
+    public List<Long> fuzzy(String name, List<Long> categoryIds) {
+        if (!productFuzzyIndex.isReady() || (!categoryIds.isEmpty() && !categoryBitmapIndex.isReady())) {
+            return null;
+        }
+
+        long[] ids = productFuzzyIndex.search(name);
+        if (!categoryIds.isEmpty()) {
+            Roaring64Bitmap inCategories = categoryBitmapIndex.anyOf(categoryIds);
+            ids = Arrays.stream(ids).filter(inCategories::contains).toArray();
+        }
+
+        if (ids.length > MAX_INDEXED_IDS) {
+            return null;
+        }
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    // os k produtos mais relevantes (BM25 sobre nome e descricao) dentro das categorias
+    // sem filtro de categoria continuam valendo so os produtos com alguma categoria: a pagina eh carregada
+    // com o join de categorias, entao os outros contariam no total sem nunca aparecer
+    // devolve null quando os indices ainda nao foram montados
+    public ProductRelevanceIndex.TopProducts relevance(String text, List<Long> categoryIds, int k) {
+        if (!productRelevanceIndex.isReady() || !categoryBitmapIndex.isReady()) {
+            return null;
+        }
+
+        Roaring64Bitmap inCategories = categoryBitmapIndex.anyOf(categoryIds);
+        return productRelevanceIndex.search(text, inCategories::contains, k);
+    }
+
+    // quantidade de produtos por categoria para o filtro de nome (facetas da busca)
+    // devolve null quando os indices ainda nao foram montados
+    public Map<Long, Long> countByCategory(String name) {
+        if (!categoryBitmapIndex.isReady() || (!name.isBlank() && !productSearchIndex.isReady())) {
+            return null;
+        }
+        if (name.isBlank()) {
+            return categoryBitmapIndex.countByCategory();
+        }
+        return categoryBitmapIndex.countByCategory(productSearchIndex.search(name));
+    }
+
+    public record IndexedProduct(Long id, String name, String description, Collection<Long> categoryIds) {
+    }
+}
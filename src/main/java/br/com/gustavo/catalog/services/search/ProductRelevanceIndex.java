@@ -0,0 +1,207 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductTextProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+// indice invertido de termos de nome e descricao, para ordenar a busca por relevancia (BM25)
+// o nome pesa mais que a descricao: cada ocorrencia no nome conta como NAME_WEIGHT ocorrencias
+// so os k melhores resultados sao mantidos (heap de tamanho k), sem ordenar todos os produtos que casam
+@Component
+public class ProductRelevanceIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductRelevanceIndex.class);
+
+    // parametros usuais do BM25: saturacao da frequencia do termo e normalizacao pelo tamanho do texto
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int NAME_WEIGHT = 3;
+
+    // comparacao dos resultados: maior nota primeiro, empate pelo menor id
+    private static final Comparator<ScoredProduct> RANKING =
+            Comparator.comparingDouble(ScoredProduct::score).reversed().thenComparingLong(ScoredProduct::id);
+
+    private final ProductRepository productRepository;
+
+    // termo -> (produto -> frequencia ponderada do termo)
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+    // produto -> termos com a frequencia ponderada (para as escritas saberem o que remover)
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+
+    // produto -> tamanho ponderado do texto
+    private final Map<Long, Integer> lengths = new HashMap<>();
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public ProductRelevanceIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        List<ProductTextProjection> products = productRepository.searchProductTexts();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            lengths.clear();
+            totalLength = 0;
+            for (ProductTextProjection product : products) {
+                add(product.getId(), product.getName(), product.getDescription());
+            }
+            ready = true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        LOG.info("indice de relevancia montado com {} produtos e {} termos", products.size(), postings.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(Long id, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+            add(id, name, description);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(Collection<ProductIndexer.IndexedProduct> products) {
+        lock.writeLock().lock();
+        try {
+            for (ProductIndexer.IndexedProduct product : products) {
+                remove(product.id());
+                add(product.id(), product.name(), product.description());
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Integer> terms = documents.remove(id);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms.keySet()) {
+                Map<Long, Integer> products = postings.get(term);
+                products.remove(id);
+                if (products.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= lengths.remove(id);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // os k produtos mais relevantes para o texto (que passam no filtro), em ordem de relevancia,
+    // e quantos produtos casam com pelo menos um termo
+    public TopProducts search(String text, LongPredicate filter, int k) {
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0 || k <= 0) {
+                return new TopProducts(List.of(), 0);
+            }
+            double averageLength = (double) totalLength / documentCount;
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : new LinkedHashSet<>(Utils.tokenize(text))) {
+                Map<Long, Integer> products = postings.get(term);
+                if (products == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - products.size() + 0.5) / (products.size() + 0.5));
+                for (Map.Entry<Long, Integer> entry : products.entrySet()) {
+                    if (!filter.test(entry.getKey())) {
+                        continue;
+                    }
+                    double tf = entry.getValue();
+                    double norm = K1 * (1 - B + B * lengths.get(entry.getKey()) / averageLength);
+                    scores.merge(entry.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+
+            // heap com o pior dos k melhores no topo: cada produto novo so entra se for melhor que ele
+            PriorityQueue<ScoredProduct> heap = new PriorityQueue<>(Math.min(k, scores.size()) + 1, RANKING.reversed());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                ScoredProduct candidate = new ScoredProduct(entry.getKey(), entry.getValue());
+                if (heap.size() < k) {
+                    heap.add(candidate);
+                }
+                else if (RANKING.compare(candidate, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+
+            List<ScoredProduct> top = new ArrayList<>(heap);
+            top.sort(RANKING);
+            return new TopProducts(top.stream().map(ScoredProduct::id).toList(), scores.size());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Long id, String name, String description) {
+        Map<String, Integer> terms = new HashMap<>();
+        int length = 0;
+        for (String term : Utils.tokenize(name)) {
+            terms.merge(term, NAME_WEIGHT, Integer::sum);
+            length += NAME_WEIGHT;
+        }
+        for (String term : Utils.tokenize(description)) {
+            terms.merge(term, 1, Integer::sum);
+            length++;
+        }
+
+        documents.put(id, terms);
+        lengths.put(id, length);
+        totalLength += length;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(id, term.getValue());
+        }
+    }
+
+    // ids na ordem de relevancia e total de produtos que casam
+    public record TopProducts(List<Long> ids, int total) {
+    }
+
+    private record ScoredProduct(long id, double score) {
+    }
+}
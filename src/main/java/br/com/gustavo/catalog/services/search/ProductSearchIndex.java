@@ -0,0 +1,244 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// indice invertido de trigramas dos nomes dos produtos, em memoria
+// responde o filtro "nome contem X" sem o LIKE '%X%' no banco (que nenhum indice B-tree consegue atender)
+// e devolve so os ids que casam, que vao pra consulta no lugar do LIKE
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private final ProductRepository productRepository;
+
+    // id do produto -> nome normalizado (usado para conferir os candidatos e para buscas com menos de 3 letras)
+    private final Map<Long, String> names = new HashMap<>();
+
+    // trigrama -> ids dos produtos que tem esse trigrama no nome
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // enquanto o indice nao foi montado, a busca cai no LIKE do banco
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        List<ProductProjection> products = productRepository.searchProductNames();
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            postings.clear();
+            for (ProductProjection product : products) {
+                add(product.getId(), Utils.normalize(product.getName()));
+            }
+            ready = true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        LOG.info("indice de nomes montado com {} produtos e {} trigramas", products.size(), postings.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // nome normalizado do produto, ou null se ele nao esta no indice
+    public String nameOf(Long id) {
+        lock.readLock().lock();
+        try {
+            return names.get(id);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Long id, String name) {
+        lock.writeLock().lock();
+        try {
+            remove(id, names.get(id));
+            add(id, Utils.normalize(name));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(Collection<ProductIndexer.IndexedProduct> products) {
+        lock.writeLock().lock();
+        try {
+            for (ProductIndexer.IndexedProduct product : products) {
+                remove(product.id(), names.get(product.id()));
+                add(product.id(), Utils.normalize(product.name()));
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id, names.get(id));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ids (ordenados) dos produtos cujo nome contem o texto, igual ao LIKE '%texto%' sem diferenciar maiusculas
+    public long[] search(String text) {
+        String query = Utils.normalize(text);
+        lock.readLock().lock();
+        try {
+            if (query.length() < 3) {
+                return scan(query);
+            }
+
+            // intersecao das listas de cada trigrama, comecando pela menor
+            List<PostingList> lists = new ArrayList<>();
+            for (long trigram : trigrams(query)) {
+                PostingList list = postings.get(trigram);
+                if (list == null) {
+                    return new long[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+
+            long[] candidates = lists.get(0).toArray();
+            int size = candidates.length;
+            for (int i = 1; i < lists.size() && size > 0; i++) {
+                size = lists.get(i).retain(candidates, size);
+            }
+
+            // ter todos os trigramas nao garante que eles estejam em sequencia, entao conferimos o nome
+            int matches = 0;
+            for (int i = 0; i < size; i++) {
+                if (names.get(candidates[i]).contains(query)) {
+                    candidates[matches++] = candidates[i];
+                }
+            }
+            return Arrays.copyOf(candidates, matches);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] scan(String query) {
+        long[] result = names.entrySet().stream()
+                .filter(e -> e.getValue().contains(query))
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void add(Long id, String name) {
+        names.put(id, name);
+        for (long trigram : trigrams(name)) {
+            postings.computeIfAbsent(trigram, t -> new PostingList()).add(id);
+        }
+    }
+
+    private void remove(Long id, String name) {
+        if (name == null) {
+            return;
+        }
+        names.remove(id);
+        for (long trigram : trigrams(name)) {
+            PostingList list = postings.get(trigram);
+            if (list != null && list.remove(id) && list.size() == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    // cada trigrama vira um long com os 3 chars (16 bits cada)
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] result = new long[text.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return Arrays.stream(result).distinct().toArray();
+    }
+
+    // lista de ids ordenada em um long[] (sem boxing), com busca binaria para inserir e remover
+    static class PostingList {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void add(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        // mantem em candidates (ordenado) so os ids que tambem estao nesta lista; devolve o novo tamanho
+        int retain(long[] candidates, int length) {
+            int kept = 0;
+            for (int i = 0; i < length; i++) {
+                if (Arrays.binarySearch(ids, 0, size, candidates[i]) >= 0) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            return kept;
+        }
+    }
+}
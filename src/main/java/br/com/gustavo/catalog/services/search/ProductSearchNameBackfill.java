@@ -0,0 +1,39 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.entities.Product;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// preenche o search_name dos produtos que ainda nao tem (linhas antigas ou vindas do import.sql)
+// as escritas pela aplicacao ja saem com o search_name preenchido pelo ProductSearchNameListener
+@Component
+public class ProductSearchNameBackfill {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSearchNameBackfill.class);
+
+    private final ProductRepository productRepository;
+
+    public ProductSearchNameBackfill(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        List<Product> products = productRepository.findBySearchNameIsNull();
+        for (Product product : products) {
+            product.setSearchName(Utils.normalize(product.getName()));
+        }
+        if (!products.isEmpty()) {
+            LOG.info("search_name preenchido em {} produtos", products.size());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// autocomplete dos nomes dos produtos: array ordenado com o nome normalizado a partir de cada palavra
+// ("smart tv 4k" entra como "smart tv 4k", "tv 4k" e "4k"), entao o prefixo eh uma busca binaria + leitura sequencial
+// o array nunca eh alterado e a leitura nao precisa de lock: montar um novo custa O(n), entao as escritas so ficam
+// pendentes (O(1)) e a primeira leitura depois delas junta todas em um array novo so, em vez de um por escrita
+@Component
+public class ProductSuggestIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator.comparing(Entry::key).thenComparingLong(Entry::id);
+
+    private final ProductRepository productRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new long[0], Map.of());
+
+    // enquanto o indice nao foi montado, as sugestoes vem do banco
+    private volatile boolean ready;
+
+    // id -> nome novo (null remove o produto) ainda fora do array, protegido pelo lock do indice
+    private Map<Long, String> pending = new HashMap<>();
+    private volatile boolean dirty;
+
+    public ProductSuggestIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void build() {
+        List<ProductProjection> products = productRepository.searchProductNames();
+        List<Entry> entries = new ArrayList<>();
+        Map<Long, String> names = new HashMap<>();
+        for (ProductProjection product : products) {
+            entries.addAll(entries(product.getId(), product.getName()));
+            names.put(product.getId(), product.getName());
+        }
+        entries.sort(ENTRY_ORDER);
+        snapshot = toSnapshot(entries, names);
+        // escritas que chegaram durante a carga podem nao estar no que foi lido: aplica de novo na proxima leitura
+        dirty = !pending.isEmpty();
+        ready = true;
+        LOG.info("indice de sugestoes montado com {} produtos e {} entradas", products.size(), entries.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized void put(Long id, String name) {
+        pending.put(id, name);
+        dirty = true;
+    }
+
+    public synchronized void putAll(Collection<ProductIndexer.IndexedProduct> products) {
+        for (ProductIndexer.IndexedProduct product : products) {
+            pending.put(product.id(), product.name());
+        }
+        dirty = true;
+    }
+
+    public synchronized void remove(Long id) {
+        pending.put(id, null);
+        dirty = true;
+    }
+
+    // id -> nome dos produtos com alguma palavra (ou o nome inteiro) comecando pelo prefixo, na ordem do texto que casou
+    public Map<Long, String> suggest(String prefix, int limit) {
+        String query = Utils.normalize(prefix);
+        Map<Long, String> result = new LinkedHashMap<>();
+        if (query.isEmpty()) {
+            return result;
+        }
+
+        if (dirty) {
+            merge();
+        }
+        Snapshot current = snapshot;
+        for (int i = lowerBound(current.keys, query); i < current.keys.length && result.size() < limit; i++) {
+            if (!current.keys[i].startsWith(query)) {
+                break;
+            }
+            result.putIfAbsent(current.ids[i], current.names.get(current.ids[i]));
+        }
+        return result;
+    }
+
+    // leva as escritas pendentes para o array; so a primeira leitura depois de uma rajada de escritas paga o O(n)
+    private synchronized void merge() {
+        if (!pending.isEmpty()) {
+            replace(pending);
+            pending = new HashMap<>();
+        }
+        dirty = false;
+    }
+
+    // novo array sem as entradas antigas dos produtos e com as novas (nome null remove o produto)
+    private void replace(Map<Long, String> changes) {
+        Snapshot current = snapshot;
+        int removed = (int) Arrays.stream(current.ids).filter(changes::containsKey).count();
+        List<Entry> added = new ArrayList<>();
+        changes.forEach((id, name) -> {
+            if (name != null) {
+                added.addAll(entries(id, name));
+            }
+        });
+        added.sort(ENTRY_ORDER);
+
+        int size = current.keys.length - removed + added.size();
+        String[] keys = new String[size];
+        long[] ids = new long[size];
+        int i = 0, j = 0, k = 0;
+        while (i < current.keys.length || j < added.size()) {
+            if (i < current.keys.length && changes.containsKey(current.ids[i])) {
+                i++;
+                continue;
+            }
+            Entry next = j < added.size() ? added.get(j) : null;
+            if (next == null || (i < current.keys.length
+                    && ENTRY_ORDER.compare(new Entry(current.keys[i], current.ids[i]), next) < 0)) {
+                keys[k] = current.keys[i];
+                ids[k++] = current.ids[i++];
+            }
+            else {
+                keys[k] = next.key();
+                ids[k++] = next.id();
+                j++;
+            }
+        }
+
+        Map<Long, String> names = new HashMap<>(current.names);
+        changes.forEach((id, name) -> {
+            if (name == null) {
+                names.remove(id);
+            }
+            else {
+                names.put(id, name);
+            }
+        });
+        snapshot = new Snapshot(keys, ids, names);
+    }
+
+    // uma entrada para o nome inteiro e uma para cada palavra seguinte
+    private static List<Entry> entries(Long id, String name) {
+        String normalized = Utils.normalize(name);
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || (normalized.charAt(i - 1) == ' ' && normalized.charAt(i) != ' ')) {
+                entries.add(new Entry(normalized.substring(i), id));
+            }
+        }
+        return entries;
+    }
+
+    // primeira posicao com chave >= prefixo
+    private static int lowerBound(String[] keys, String prefix) {
+        int index = Arrays.binarySearch(keys, prefix);
+        if (index >= 0) {
+            // chaves repetidas (produtos com o mesmo nome): volta ate a primeira
+            while (index > 0 && keys[index - 1].equals(prefix)) {
+                index--;
+            }
+            return index;
+        }
+        return -index - 1;
+    }
+
+    private static Snapshot toSnapshot(List<Entry> entries, Map<Long, String> names) {
+        String[] keys = new String[entries.size()];
+        long[] ids = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            keys[i] = entries.get(i).key();
+            ids[i] = entries.get(i).id();
+        }
+        return new Snapshot(keys, ids, names);
+    }
+
+    private record Entry(String key, long id) {
+    }
+
+    // chaves ordenadas, id de cada chave e o nome original de cada produto (o que aparece na sugestao)
+    private record Snapshot(String[] keys, long[] ids, Map<Long, String> names) {
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.gustavo.catalog.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// cursor da paginacao keyset: guarda o (name, id) do ultimo produto retornado
+// o cliente recebe isso como um token opaco (base64) e manda de volta no parametro "after"
+public class ProductCursor {
+
+    // cursor inicial: qualquer nome eh maior ou igual a "" e qualquer id eh maior que 0
+    public static final ProductCursor FIRST = new ProductCursor("", 0L);
+
+    private final String name;
+    private final Long id;
+
+    public ProductCursor(String name, Long id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    // o id vai na frente pois o nome pode conter ":"
+    public String encode() {
+        String raw = id + ":" + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            Long id = Long.parseLong(raw.substring(0, separator));
+            return new ProductCursor(raw.substring(separator + 1), id);
+        }
+        catch (IllegalArgumentException e) {
+            // NumberFormatException tambem eh IllegalArgumentException
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
@@ -3,11 +3,16 @@ package br.com.gustavo.catalog.util;
 import br.com.gustavo.catalog.entities.Product;
 import br.com.gustavo.catalog.projections.IdProjection;
 import br.com.gustavo.catalog.projections.ProductProjection;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 public class Utils {
 
@@ -26,4 +31,43 @@ public class Utils {
 
         return result;
     }
+
+    // roda a acao depois do commit da transacao atual (ou na hora, se nao houver transacao)
+    // usado para os indices e caches em memoria: um rollback nao pode deixa-los diferentes do banco
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // acentos que sobram separados da letra depois da decomposicao NFD ("é" vira "e" + acento)
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    // forma normalizada de um texto para as buscas: sem espacos nas pontas, em minusculas e sem acentos ("Café" -> "cafe")
+    // usada no search_name dos produtos e nos indices em memoria, entao os dois lados da comparacao ficam iguais
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // palavras do texto normalizado (separadas por qualquer coisa que nao seja letra ou numero)
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
 }
@@ -0,0 +1,15 @@
+-- roda depois do Hibernate (spring.jpa.defer-datasource-initialization), no perfil dev
+-- indice de trigramas no search_name: atende o LIKE '%texto%' da busca por nome, que um B-tree nao consegue
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_product_search_name_trgm ON tb_product USING gin (search_name gin_trgm_ops);
+
+-- bancos criados quando os ids eram IDENTITY: as sequences (criadas pelo Hibernate comecando em 1) sao adiantadas
+-- para depois do maior id de cada tabela; com o otimizador pooled o proximo bloco comeca em (valor + 1)
+SELECT setval('tb_user_seq', (SELECT MAX(id) FROM tb_user)) WHERE (SELECT last_value FROM tb_user_seq) < (SELECT MAX(id) FROM tb_user);
+SELECT setval('tb_role_seq', (SELECT MAX(id) FROM tb_role)) WHERE (SELECT last_value FROM tb_role_seq) < (SELECT MAX(id) FROM tb_role);
+SELECT setval('tb_category_seq', (SELECT MAX(id) FROM tb_category)) WHERE (SELECT last_value FROM tb_category_seq) < (SELECT MAX(id) FROM tb_category);
+SELECT setval('tb_product_seq', (SELECT MAX(id) FROM tb_product)) WHERE (SELECT last_value FROM tb_product_seq) < (SELECT MAX(id) FROM tb_product);
+SELECT setval('tb_password_recover_seq', (SELECT MAX(id) FROM tb_password_recover)) WHERE (SELECT last_value FROM tb_password_recover_seq) < (SELECT MAX(id) FROM tb_password_recover);
+
+-- coluna version adicionada pelo Hibernate nos produtos que ja existiam: comeca em 0, como nos inseridos pela aplicacao
+UPDATE tb_product SET version = 0 WHERE version IS NULL;
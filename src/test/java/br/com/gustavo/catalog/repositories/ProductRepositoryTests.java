@@ -1,13 +1,22 @@
 package br.com.gustavo.catalog.repositories;
 
+import br.com.gustavo.catalog.dto.ProductDTO;
 import br.com.gustavo.catalog.entities.Product;
+import br.com.gustavo.catalog.projections.ProductProjection;
 import br.com.gustavo.catalog.tests.Factory;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.List;
 import java.util.Optional;
 
 @DataJpaTest
@@ -16,6 +25,9 @@ public class ProductRepositoryTests {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private long existingId;
     private long nonExistingId;
     private long countTotalProducts;
@@ -72,4 +84,78 @@ public class ProductRepositoryTests {
         // retorna falso pois deletamos o id
         Assertions.assertFalse(result.isPresent());
     }
-}
\ No newline at end of file
+
+    // o search_name deveria ser gravado sem acentos e em minusculas, e a busca por nome deveria ignorar acentos
+    @Test
+    public void saveShouldFillSearchNameAndSearchShouldIgnoreAccents() {
+
+        // atualiza um produto existente (inserir um novo mudaria o proximo id esperado pelo teste do save)
+        Product product = productRepository.findById(existingId).get();
+        product.setName("Café Expresso");
+
+        product = productRepository.saveAndFlush(product);
+
+        Assertions.assertEquals("cafe expresso", product.getSearchName());
+
+        Page<ProductDTO> result = productRepository.searchProductsPage(new ProductSearchFilter(List.of(), "CAFE"), PageRequest.of(0, 10));
+        Assertions.assertEquals(1L, result.getTotalElements());
+        Assertions.assertEquals("Café Expresso", result.getContent().get(0).getName());
+
+        result = productRepository.searchProductsPage(new ProductSearchFilter(List.of(), "expressó"), PageRequest.of(0, 10));
+        Assertions.assertEquals(1L, result.getTotalElements());
+    }
+
+    // a descricao (TEXT) so deveria ser lida do banco quando acessada
+    @Test
+    public void findByIdShouldLoadDescriptionLazily() {
+
+        Product product = productRepository.findById(existingId).get();
+
+        Assertions.assertTrue(Hibernate.isPropertyInitialized(product, "name"));
+        Assertions.assertFalse(Hibernate.isPropertyInitialized(product, "description"));
+        Assertions.assertNotNull(product.getDescription());
+        Assertions.assertTrue(Hibernate.isPropertyInitialized(product, "description"));
+    }
+
+    // o detalhe do produto deveria vir com descricao e categorias em um unico select
+    @Test
+    public void findWithDescriptionByIdShouldLoadDescriptionAndCategoriesInOneStatement() {
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Product product = productRepository.findWithDescriptionById(existingId).get();
+
+        Assertions.assertTrue(Hibernate.isPropertyInitialized(product, "description"));
+        Assertions.assertTrue(Hibernate.isInitialized(product.getCategories()));
+        Assertions.assertNotNull(product.getDescription());
+        Assertions.assertFalse(product.getCategories().isEmpty());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // a sugestao pelo banco deveria casar o inicio de qualquer palavra, igual ao indice em memoria
+    @Test
+    public void suggestProductNamesShouldMatchPrefixOfAnyWord() {
+
+        Product chair = Factory.createProduct();
+        chair.setId(null);
+        chair.setName("Cadeira Gamer Ergonômica");
+        Product desk = Factory.createProduct();
+        desk.setId(null);
+        desk.setName("Mesa Gamer");
+        chair = productRepository.save(chair);
+        desk = productRepository.save(desk);
+        productRepository.flush();
+
+        Assertions.assertEquals(List.of(chair.getId()), suggestedIds("cad"));
+        Assertions.assertEquals(List.of(chair.getId()), suggestedIds("ergo"));
+        Assertions.assertEquals(List.of(chair.getId(), desk.getId()), suggestedIds("gamer"));
+        Assertions.assertTrue(suggestedIds("amer").isEmpty());
+    }
+
+    private List<Long> suggestedIds(String prefix) {
+        return productRepository.suggestProductNames(prefix, PageRequest.of(0, 10)).stream()
+                .map(ProductProjection::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.gustavo.catalog.repositories;
+
+import br.com.gustavo.catalog.entities.Category;
+import br.com.gustavo.catalog.entities.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Category e Role deveriam vir do cache de segundo nivel (e o findByAuthority do cache de consultas),
+// sem ir ao banco depois da primeira leitura
+// sem a transacao do teste: cada chamada do repository roda em uma sessao propria, como requisicoes diferentes
+// (no READ_WRITE o que entra no cache so eh lido por sessoes abertas depois disso)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReferenceDataCacheTests {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // loadAllById deveria trazer as categorias do cache, e so ir ao banco pelos ids que nao estao nele
+    @Test
+    public void loadAllByIdShouldReadCategoriesFromSecondLevelCache() {
+
+        categoryRepository.loadAllById(List.of(1L, 2L));
+
+        long hits = statistics.getDomainDataRegionStatistics("category").getHitCount();
+        long statements = statistics.getPrepareStatementCount();
+
+        List<Category> result = categoryRepository.loadAllById(List.of(1L, 2L));
+
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertEquals(hits + 2, statistics.getDomainDataRegionStatistics("category").getHitCount());
+        Assertions.assertEquals(statements, statistics.getPrepareStatementCount());
+
+        // id inexistente fica de fora da lista
+        Assertions.assertEquals(1, categoryRepository.loadAllById(List.of(1L, 1000L)).size());
+    }
+
+    // findByAuthority deveria vir do cache de consultas a partir da segunda chamada
+    @Test
+    public void findByAuthorityShouldUseQueryCache() {
+
+        roleRepository.findByAuthority("ROLE_OPERATOR");
+
+        long hits = statistics.getQueryCacheHitCount();
+        long statements = statistics.getPrepareStatementCount();
+
+        Role role = roleRepository.findByAuthority("ROLE_OPERATOR");
+
+        Assertions.assertEquals("ROLE_OPERATOR", role.getAuthority());
+        Assertions.assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+        Assertions.assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,135 @@
+package br.com.gustavo.catalog.resources;
+
+import br.com.gustavo.catalog.dto.CategoryDTO;
+import br.com.gustavo.catalog.tests.TokenUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// sem @Transactional: a versao da listagem so muda depois de um commit de verdade
+// (os testes desfazem as proprias escritas, entao o seed do banco nao muda)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CategoryResourceIntegracaoTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${catalog.category.listing.ttl}")
+    private Duration listingTtl;
+
+    private Long existingId;
+    private Long countTotalCategories;
+
+    private String bearerToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        existingId = 1L;
+        countTotalCategories = 3L;
+
+        bearerToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+    }
+
+    // findAll deveria retornar a pagina de categorias com ETag, e 304 sem corpo para o mesmo ETag
+    @Test
+    public void findAllShouldReturnNotModifiedWhenETagMatches() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/categories?sort=name").accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(header().exists(HttpHeaders.ETAG));
+        result.andExpect(jsonPath("$.totalElements").value(countTotalCategories));
+        result.andExpect(jsonPath("$.content[0].name").value("Computadores"));
+
+        String eTag = result.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        result = mockMvc.perform(get("/categories?sort=name").header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        result.andExpect(status().isNotModified());
+        result.andExpect(content().string(""));
+    }
+
+    // depois de um update a listagem deveria ganhar um novo ETag, e o antigo deixa de valer
+    // o ETag sai dos dados: voltando o nome original, volta o ETag original
+    @Test
+    public void findAllShouldReturnNewETagAfterUpdate() throws Exception {
+
+        String eTag = mockMvc.perform(get("/categories")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        try {
+            updateName(existingId, "Livros e Revistas");
+
+            ResultActions result = mockMvc.perform(get("/categories").header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+            result.andExpect(status().isOk());
+            result.andExpect(jsonPath("$.totalElements").value(countTotalCategories));
+            Assertions.assertNotEquals(eTag, result.andReturn().getResponse().getHeader(HttpHeaders.ETAG));
+        }
+        finally {
+            updateName(existingId, "Livros");
+        }
+
+        mockMvc.perform(get("/categories").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    // escrita feita fora do CategoryService (outra instancia, SQL direto) deveria mudar o ETag quando a versao expira
+    @Test
+    public void findAllShouldReturnNewETagAfterOutOfBandWriteOnceVersionExpires() throws Exception {
+
+        String eTag = mockMvc.perform(get("/categories")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        jdbcTemplate.update("INSERT INTO tb_category (id, name, created_at) VALUES (1000, 'Games', CURRENT_TIMESTAMP)");
+        try {
+            Thread.sleep(listingTtl.toMillis() + 100);
+
+            ResultActions result = mockMvc.perform(get("/categories").header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+            result.andExpect(status().isOk());
+            result.andExpect(jsonPath("$.totalElements").value(countTotalCategories + 1));
+            Assertions.assertNotEquals(eTag, result.andReturn().getResponse().getHeader(HttpHeaders.ETAG));
+        }
+        finally {
+            jdbcTemplate.update("DELETE FROM tb_category WHERE id = 1000");
+        }
+    }
+
+    private void updateName(Long id, String name) throws Exception {
+        String jsonBody = objectMapper.writeValueAsString(new CategoryDTO(id, name));
+        mockMvc.perform(put("/categories/{id}", id)
+                        .header("Authorization", "Bearer " + bearerToken)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+}
@@ -1,22 +1,39 @@
 package br.com.gustavo.catalog.resources;
 
 import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.services.cache.ProductDetailCache;
+import br.com.gustavo.catalog.services.cache.ProductSearchCache;
 import br.com.gustavo.catalog.tests.Factory;
 import br.com.gustavo.catalog.tests.TokenUtil;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -33,6 +50,15 @@ public class ProductResourceIntegracaoTest {
     @Autowired
     private TokenUtil tokenUtil;
 
+    @Autowired
+    private ProductSearchCache productSearchCache;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
     private Long existingId;
     private Long nonExistingId;
     private Long countTotalProducts;
@@ -46,6 +72,10 @@ public class ProductResourceIntegracaoTest {
         nonExistingId = 26L;
         countTotalProducts = 25L;
 
+        // as escritas dos testes terminam em rollback e nao invalidam o cache, que eh compartilhado pelo contexto
+        productSearchCache.evictAll();
+        productDetailCache.evictAll();
+
         username = "maria@gmail.com";
         password = "123456";
 
@@ -68,6 +98,181 @@ public class ProductResourceIntegracaoTest {
         result.andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"));
     }
 
+    // export deveria trazer todos os produtos, um por linha, com descricao e categorias
+    @Test
+    public void exportShouldStreamAllProductsAsNdjson() throws Exception {
+
+        MvcResult async = mockMvc.perform(get("/products/export")).andExpect(request().asyncStarted()).andReturn();
+        String body = mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(countTotalProducts, lines.length);
+        for (String line : lines) {
+            JsonNode product = objectMapper.readTree(line);
+            Assertions.assertTrue(product.hasNonNull("description"));
+            Assertions.assertFalse(product.get("categories").isEmpty());
+        }
+        Assertions.assertEquals(1L, objectMapper.readTree(lines[0]).get("id").asLong());
+    }
+
+    // import deveria gravar os produtos validos do NDJSON e devolver os erros por registro
+    @Test
+    public void importNdjsonShouldReturnReportWhenAdminLogged() throws Exception {
+
+        ProductDTO valid = Factory.creatProductDTO();
+        valid.setId(null);
+        ProductDTO invalid = Factory.creatProductDTO();
+        invalid.setId(null);
+        invalid.setPrice(0.0);
+        String body = objectMapper.writeValueAsString(valid) + "\n" + objectMapper.writeValueAsString(invalid) + "\n{nao eh json\n";
+
+        ResultActions result =
+                mockMvc.perform(post("/products/import")
+                        .header("Authorization", "Bearer " + bearerToken)
+                        .content(body)
+                        .contentType("application/x-ndjson")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.imported").value(1));
+        result.andExpect(jsonPath("$.rejected").value(2));
+        result.andExpect(jsonPath("$.errors[0].row").value(2));
+        result.andExpect(jsonPath("$.errors[0].message").value("price: O preço deve ser positivo"));
+        result.andExpect(jsonPath("$.errors[1].row").value(3));
+    }
+
+    // PUT /products/batch deveria devolver o resultado de cada item, na ordem em que vieram
+    @Test
+    public void upsertAllShouldReturnResultPerItemWhenAdminLogged() throws Exception {
+
+        ProductDTO update = Factory.creatProductDTO();
+        update.setId(existingId);
+        ProductDTO insert = Factory.creatProductDTO();
+        insert.setId(null);
+        ProductDTO notFound = Factory.creatProductDTO();
+        notFound.setId(nonExistingId);
+
+        String jsonBody = objectMapper.writeValueAsString(List.of(update, insert, notFound));
+
+        ResultActions result =
+                mockMvc.perform(put("/products/batch")
+                        .header("Authorization", "Bearer " + bearerToken)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.length()").value(3));
+        result.andExpect(jsonPath("$[0].id").value(existingId));
+        result.andExpect(jsonPath("$[0].status").value("UPDATED"));
+        result.andExpect(jsonPath("$[1].id").exists());
+        result.andExpect(jsonPath("$[1].status").value("CREATED"));
+        result.andExpect(jsonPath("$[2].index").value(2));
+        result.andExpect(jsonPath("$[2].status").value("NOT_FOUND"));
+    }
+
+    // findById deveria devolver ETag, responder 304 para o mesmo ETag, e trocar o ETag depois de um update
+    @Test
+    public void findByIdShouldHonorETagUntilProductChanges() throws Exception {
+
+        String eTag = mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products/{id}", existingId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        ProductDTO productDTO = Factory.creatProductDTO();
+        mockMvc.perform(put("/products/{id}", existingId)
+                        .header("Authorization", "Bearer " + bearerToken)
+                        .content(objectMapper.writeValueAsString(productDTO))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        ResultActions result = mockMvc.perform(get("/products/{id}", existingId).header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.name").value(productDTO.getName()));
+        Assertions.assertNotEquals(eTag, result.andReturn().getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    // findAllByIds deveria devolver os produtos na ordem pedida e recusar listas acima do maximo
+    @Test
+    public void findAllByIdsShouldReturnProductsInRequestedOrder() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products?ids=3,1,2").accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.length()").value(3));
+        result.andExpect(jsonPath("$[0].id").value(3L));
+        result.andExpect(jsonPath("$[1].id").value(1L));
+        result.andExpect(jsonPath("$[2].id").value(2L));
+        result.andExpect(jsonPath("$[1].description").exists());
+
+        String tooMany = String.join(",", LongStream.rangeClosed(1, 101).mapToObj(Long::toString).toList());
+        mockMvc.perform(get("/products").param("ids", tooMany))
+                .andExpect(status().isBadRequest());
+    }
+
+    // findById deveria responder com o JSON comprimido (e um ETag proprio) qnd o cliente aceita gzip
+    @Test
+    public void findByIdShouldReturnGzipWhenClientAcceptsIt() throws Exception {
+
+        String plain = mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        MvcResult result = mockMvc.perform(get("/products/{id}", existingId).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        Assertions.assertTrue(result.getResponse().getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            Assertions.assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertTrue(eTag.endsWith("-gzip\""));
+        mockMvc.perform(get("/products/{id}", existingId)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    // update com If-Match: a primeira escrita com o ETag lido passa, a segunda (com o mesmo ETag, agora velho) recebe 412
+    @Test
+    public void updateShouldReturnPreconditionFailedWhenIfMatchIsStale() throws Exception {
+
+        String eTag = mockMvc.perform(get("/products/{id}", existingId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        ProductDTO productDTO = Factory.creatProductDTO();
+
+        mockMvc.perform(put("/products/{id}", existingId)
+                        .header("Authorization", "Bearer " + bearerToken)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(objectMapper.writeValueAsString(productDTO))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        // sem o flush o @Version so mudaria no commit (que nunca acontece no teste)
+        productRepository.flush();
+
+        productDTO.setName("Outro nome");
+        ResultActions result = mockMvc.perform(put("/products/{id}", existingId)
+                .header("Authorization", "Bearer " + bearerToken)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .content(objectMapper.writeValueAsString(productDTO))
+                .contentType(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isPreconditionFailed());
+        result.andExpect(jsonPath("$.status").value(412));
+    }
+
     // update deveria retornar um produtoDTO quando passamos um id existente qnd formos atualizar
     @Test
     public void updateShouldReturnProductDTOWhenIdExists() throws Exception {
@@ -1,7 +1,14 @@
 package br.com.gustavo.catalog.resources;
 
+import br.com.gustavo.catalog.dto.CategoryFacetDTO;
+import br.com.gustavo.catalog.dto.CursorPageDTO;
 import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.dto.ProductSuggestionDTO;
+import br.com.gustavo.catalog.entities.Product;
+import br.com.gustavo.catalog.services.ProductExportService;
+import br.com.gustavo.catalog.services.ProductImportService;
 import br.com.gustavo.catalog.services.ProductService;
+import br.com.gustavo.catalog.services.cache.ProductDetailCache;
 import br.com.gustavo.catalog.services.exceptions.DatabaseException;
 import br.com.gustavo.catalog.services.exceptions.ResourceNotFoundException;
 import br.com.gustavo.catalog.tests.Factory;
@@ -12,18 +19,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 // liberando os testes da camada web e desconsiderando a segurança para liberar os endpoints para testar
@@ -36,6 +56,15 @@ public class ProductResourceTests {
     @MockitoBean
     private ProductService productService;
 
+    @MockitoBean
+    private ProductExportService productExportService;
+
+    @MockitoBean
+    private ProductImportService productImportService;
+
+    @MockitoBean
+    private ProductDetailCache productDetailCache;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -57,6 +86,12 @@ public class ProductResourceTests {
 
         when(productService.findAllPaged(any())).thenReturn(page);
 
+        // o cache do GET /products/{id} sempre monta o JSON com o produto do service (sem guardar nada)
+        when(productDetailCache.get(any(), any(), any())).thenAnswer(invocation -> {
+            Supplier<ProductDTO> loader = invocation.getArgument(2);
+            return new ProductDetailCache.Entry(invocation.getArgument(1), objectMapper.writeValueAsBytes(loader.get()), null);
+        });
+
         // simulando o comportamento para buscar com id com id existente
         when(productService.findById(existingId)).thenReturn(productDTO);
 
@@ -67,10 +102,10 @@ public class ProductResourceTests {
         when(productService.insert(any())).thenReturn(productDTO);
 
         // simulando o comportamento para atualizar com id existente
-        when(productService.update(eq(existingId), any())).thenReturn(productDTO);
+        when(productService.update(eq(existingId), any(), any())).thenReturn(productDTO);
 
         // simulando o comportamento para atualizar com id não existente
-        when(productService.update(eq(nonExistingId), any())).thenThrow(ResourceNotFoundException.class);
+        when(productService.update(eq(nonExistingId), any(), any())).thenThrow(ResourceNotFoundException.class);
 
         // simulando os 3 possíveis cenários do service.delete
         doNothing().when(productService).delete(existingId);
@@ -97,6 +132,135 @@ public class ProductResourceTests {
         result.andExpect(status().isOk());
     }
 
+    // findAll com facets=true deveria trazer a contagem por categoria junto com a pagina
+    @Test
+    public void findAllShouldReturnFacetsWhenRequested() throws Exception {
+
+        when(productService.findAllPaged2(any(), any(), any(), any(), any(), any(), any())).thenReturn(page);
+        when(productService.findCategoryFacets(any())).thenReturn(List.of(new CategoryFacetDTO(1L, "Electronics", 1L)));
+
+        ResultActions result =
+                mockMvc.perform(get("/products?facets=true")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(1));
+        result.andExpect(jsonPath("$.facets[0].name").value("Electronics"));
+        result.andExpect(jsonPath("$.facets[0].count").value(1));
+    }
+
+    // findAll deveria repassar as faixas de preco e data para o service
+    @Test
+    public void findAllShouldPassPriceAndDateRanges() throws Exception {
+
+        when(productService.findAllPaged2(any(), any(), eq(100.0), eq(500.0), eq(Instant.parse("2020-07-01T00:00:00Z")),
+                any(), any())).thenReturn(page);
+
+        ResultActions result =
+                mockMvc.perform(get("/products?minPrice=100&maxPrice=500&from=2020-07-01T00:00:00Z")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").exists());
+    }
+
+    // findAll com mode=cursor deveria retornar a pagina com o token da proxima pagina
+    @Test
+    public void findAllCursorShouldReturnCursorPage() throws Exception {
+
+        when(productService.findAllCursor(any(), any(), any(), anyInt()))
+                .thenReturn(new CursorPageDTO<>(List.of(productDTO), 1, "token"));
+
+        ResultActions result =
+                mockMvc.perform(get("/products?mode=cursor&size=1")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").exists());
+        result.andExpect(jsonPath("$.next").value("token"));
+        result.andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    // findAll com mode=slice deveria retornar o envelope enxuto, sem total
+    @Test
+    public void findAllSlicedShouldReturnSliceWithoutTotal() throws Exception {
+
+        when(productService.findAllSliced(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of(productDTO), PageRequest.of(0, 1), true));
+
+        ResultActions result =
+                mockMvc.perform(get("/products?mode=slice&size=1")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").exists());
+        result.andExpect(jsonPath("$.hasNext").value(true));
+        result.andExpect(jsonPath("$.totalElements").doesNotExist());
+        result.andExpect(jsonPath("$.pageable").doesNotExist());
+    }
+
+    // findAll com mode=fuzzy deveria ir para a busca aproximada
+    @Test
+    public void findAllFuzzyShouldReturnPage() throws Exception {
+
+        when(productService.findAllFuzzy(eq("macbok"), any(), any())).thenReturn(page);
+
+        ResultActions result =
+                mockMvc.perform(get("/products?mode=fuzzy&name=macbok")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").exists());
+    }
+
+    // findAll com mode=relevance deveria ir para a busca por relevancia
+    @Test
+    public void findAllByRelevanceShouldReturnPage() throws Exception {
+
+        when(productService.findAllByRelevance(eq("mouse"), any(), any())).thenReturn(page);
+
+        ResultActions result =
+                mockMvc.perform(get("/products?mode=relevance&name=mouse")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").exists());
+    }
+
+    // suggest deveria retornar id e nome das sugestoes para o prefixo
+    @Test
+    public void suggestShouldReturnSuggestionsForPrefix() throws Exception {
+
+        when(productService.findSuggestions("pho", 5)).thenReturn(List.of(new ProductSuggestionDTO(1L, "Phone")));
+
+        ResultActions result =
+                mockMvc.perform(get("/products/suggest?q=pho&limit=5")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$[0].id").value(1L));
+        result.andExpect(jsonPath("$[0].name").value("Phone"));
+    }
+
+    // export deveria responder em NDJSON o que o service escrever no stream
+    @Test
+    public void exportShouldStreamNdjson() throws Exception {
+
+        when(productExportService.export(any())).thenAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        });
+
+        MvcResult async = mockMvc.perform(get("/products/export")).andExpect(request().asyncStarted()).andReturn();
+
+        ResultActions result = mockMvc.perform(asyncDispatch(async));
+
+        result.andExpect(status().isOk());
+        result.andExpect(content().contentType("application/x-ndjson"));
+        result.andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
     // findById deveria retornar um produto pelo id qnd id for existente
     @Test
     public void findByIdShouldReturnProductWhenIdExists() throws Exception{
@@ -111,6 +275,22 @@ public class ProductResourceTests {
         result.andExpect(jsonPath("$.description").exists());
     }
 
+    // findById deveria retornar 304 sem buscar o produto qnd o cliente ja tem a versao atual (If-None-Match)
+    @Test
+    public void findByIdShouldReturnNotModifiedWhenETagMatches() throws Exception {
+
+        when(productService.findETag(existingId)).thenReturn("1-0-abc");
+
+        ResultActions result =
+                mockMvc.perform(get("/products/{id}", existingId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-0-abc\"")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotModified());
+        result.andExpect(header().string(HttpHeaders.ETAG, "\"1-0-abc\""));
+        verify(productService, never()).findById(existingId);
+    }
+
     // findById deveria retornar uma exceção qnd passamos um id não existente
     @Test
     public void findByIdShouldReturnNotFoundWhenIdDoesNotExist() throws Exception {
@@ -175,6 +355,25 @@ public class ProductResourceTests {
         result.andExpect(status().isNotFound());
     }
 
+    // update deveria retornar 409 (e nao 500) qnd outra escrita no mesmo produto foi gravada antes (@Version)
+    @Test
+    public void updateShouldReturnConflictWhenProductWasChangedConcurrently() throws Exception {
+
+        when(productService.update(eq(existingId), any(), any()))
+                .thenReturn(productDTO)
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, existingId));
+        String jsonBody = objectMapper.writeValueAsString(productDTO);
+
+        mockMvc.perform(put("/products/{id}", existingId).content(jsonBody).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        ResultActions result =
+                mockMvc.perform(put("/products/{id}", existingId).content(jsonBody).contentType(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+        result.andExpect(jsonPath("$.status").value(409));
+        result.andExpect(jsonPath("$.path").value("/products/" + existingId));
+    }
+
     // delete deveria retornar um NoContent (código 204) qnd id existir
     @Test
     public void deleteShouldReturnNoContentWhenExistsId() throws Exception{
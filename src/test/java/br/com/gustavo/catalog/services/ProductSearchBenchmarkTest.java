@@ -0,0 +1,156 @@
+package br.com.gustavo.catalog.services;
+
+import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.entities.Product;
+import br.com.gustavo.catalog.projections.ProductProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.services.search.CategoryBitmapIndex;
+import br.com.gustavo.catalog.services.search.ProductSearchIndex;
+import br.com.gustavo.catalog.util.Utils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// benchmark da busca de produtos: caminho antigo (3 consultas + Utils.replace) x consulta unica,
+// e memoria alocada pela listagem com entidades x projecao
+// so roda quando pedido, pois demora e so imprime os tempos:
+//   mvn test -Dtest=ProductSearchBenchmarkTest -Dbenchmark=true                 (H2)
+//   APP_PROFILE=dev mvn test -Dtest=ProductSearchBenchmarkTest -Dbenchmark=true (Postgres do perfil dev)
+@SpringBootTest(properties = "catalog.search.cache.enabled=false") // mede as consultas, nao o cache
+@Transactional // os produtos extras do benchmark sao desfeitos no final
+@DirtiesContext // ...mas os indices em memoria nao, entao o contexto nao eh reaproveitado
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ProductSearchBenchmarkTest {
+
+    private static final int EXTRA_PRODUCTS = 5000;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CategoryBitmapIndex categoryBitmapIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // ids de blocos de 50 da sequence dos produtos (otimizador pooled: o valor devolvido eh o fim do bloco),
+        // como na importacao em massa
+        List<Object[]> products = new ArrayList<>();
+        long end = 0;
+        for (int i = 0; i < EXTRA_PRODUCTS; i++) {
+            if (i % 50 == 0) {
+                end = jdbcTemplate.queryForObject("SELECT nextval('tb_product_seq')", Long.class);
+            }
+            String name = "Benchmark Product " + i;
+            products.add(new Object[] {end - 49 + i % 50, name, Utils.normalize(name), "Benchmark", 10.0 + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tb_product (id, name, search_name, description, price, version) VALUES (?, ?, ?, ?, ?, 0)", products);
+        jdbcTemplate.update("""
+                INSERT INTO tb_product_category (product_id, category_id)
+                SELECT id, 1 + MOD(id, 3) FROM tb_product WHERE description = 'Benchmark'
+                """);
+        productSearchIndex.build();
+        categoryBitmapIndex.build();
+    }
+
+    @Test
+    public void singleQuerySearchShouldBeFasterThanThreeQuerySearch() {
+        PageRequest pageRequest = PageRequest.of(3, 12, Sort.by("name"));
+
+        long before = measure("3 consultas", () -> threeQuerySearch("product", List.of(2L, 3L), pageRequest));
+        long after = measure("consulta unica", () -> productService.findAllPaged2("product", "2,3", pageRequest));
+
+        System.out.printf("busca de produtos: %d us -> %d us (%.1fx)%n", before, after, (double) before / after);
+        Assertions.assertEquals(threeQuerySearch("product", List.of(2L, 3L), pageRequest).getTotalElements(),
+                productService.findAllPaged2("product", "2,3", pageRequest).getTotalElements());
+    }
+
+    // memoria alocada por listagem: entidades Product/Category (com a descricao) x projecao direto do SQL
+    @Test
+    public void projectionListShouldAllocateLessThanEntityList() {
+        List<Long> ids = productService.findAllPaged2("product", "0", PageRequest.of(0, 24, Sort.by("name")))
+                .map(ProductDTO::getId).toList();
+
+        long before = measureAllocation("entidades", () -> {
+            List<ProductDTO> dtos = productRepository.searchProductsWithCategories(ids).stream()
+                    .map(p -> new ProductDTO(p, p.getCategories())).toList();
+            // cada request tem um contexto de persistencia novo
+            entityManager.clear();
+            return dtos;
+        });
+        long after = measureAllocation("projecao", () -> productRepository.searchProductsByIds(ids));
+
+        System.out.printf("listagem de %d produtos: %d KB -> %d KB por request%n", ids.size(), before / 1024, after / 1024);
+        Assertions.assertEquals(ids, productRepository.searchProductsByIds(ids).stream().map(ProductDTO::getId).toList());
+    }
+
+    // o caminho que o findAllPaged2 usava antes
+    @SuppressWarnings("unchecked")
+    private Page<ProductDTO> threeQuerySearch(String name, List<Long> categoryIds, PageRequest pageRequest) {
+        Page<ProductProjection> page = productRepository.searchProducts(categoryIds, name, pageRequest);
+        List<Long> productIds = page.map(ProductProjection::getId).toList();
+        List<Product> entities = productRepository.searchProductsWithCategories(productIds);
+        entities = (List<Product>) Utils.replace(page.getContent(), entities);
+        List<ProductDTO> dtos = entities.stream().map(p -> new ProductDTO(p, p.getCategories())).toList();
+        return new PageImpl<>(dtos, page.getPageable(), page.getTotalElements());
+    }
+
+    // bytes alocados em media por chamada (pela thread do teste)
+    private long measureAllocation(String label, Supplier<?> search) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            search.get();
+        }
+        long start = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            search.get();
+        }
+        long bytes = (threads.getCurrentThreadAllocatedBytes() - start) / ITERATIONS;
+        System.out.printf("%s: %d bytes por busca%n", label, bytes);
+        return bytes;
+    }
+
+    // tempo medio por chamada, em microssegundos
+    private long measure(String label, Supplier<?> search) {
+        for (int i = 0; i < WARMUP; i++) {
+            search.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            search.get();
+        }
+        long micros = (System.nanoTime() - start) / ITERATIONS / 1000;
+        System.out.printf("%s: %d us por busca%n", label, micros);
+        return micros;
+    }
+}
@@ -1,8 +1,19 @@
 package br.com.gustavo.catalog.services;
 
+import br.com.gustavo.catalog.dto.CategoryDTO;
+import br.com.gustavo.catalog.dto.CategoryFacetDTO;
+import br.com.gustavo.catalog.dto.CursorPageDTO;
+import br.com.gustavo.catalog.dto.ProductBatchResultDTO;
 import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.dto.ProductImportErrorDTO;
+import br.com.gustavo.catalog.dto.ProductImportReportDTO;
+import br.com.gustavo.catalog.entities.Category;
+import br.com.gustavo.catalog.entities.Product;
+import br.com.gustavo.catalog.projections.ProductProjection;
 import br.com.gustavo.catalog.repositories.ProductRepository;
+import br.com.gustavo.catalog.services.cache.ProductSearchCache;
 import br.com.gustavo.catalog.services.exceptions.ResourceNotFoundException;
+import br.com.gustavo.catalog.tests.Factory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,9 +21,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @SpringBootTest
 
 // nenhum teste vai influenciar nos outros testes, exemplo: teste delete n vai influenciar no teste findAllPaged, logo, o seed do banco de dados vai "resetar"
@@ -26,6 +47,12 @@ public class ProductServiceIntegracaoTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSearchCache productSearchCache;
+
+    @Autowired
+    private ProductImportService productImportService;
+
     private Long existingId;
     private Long nonExistingId;
     private Long countTotalProducts;
@@ -36,6 +63,9 @@ public class ProductServiceIntegracaoTest {
         existingId = 1L;
         nonExistingId = 26L;
         countTotalProducts = 25L;
+
+        // as escritas dos testes terminam em rollback e nao invalidam o cache, que eh compartilhado pelo contexto
+        productSearchCache.evictAll();
     }
 
     // teste para retornar produtos paginados (pagina 0, com tamanho de 10 (10 produtos por pagina))
@@ -80,6 +110,228 @@ public class ProductServiceIntegracaoTest {
         Assertions.assertEquals("PC Gamer Alfa", result.getContent().get(2).getName());
     }
 
+    // busca paginada em uma consulta so: pagina ordenada pelo nome, total de produtos e categorias de cada produto
+    @Test
+    public void findAllPaged2ShouldReturnSortedPageWithTotalAndCategories() {
+
+        PageRequest pageRequest = PageRequest.of(0, 5, Sort.by("name"));
+
+        Page<ProductDTO> result = productService.findAllPaged2("", "0", pageRequest);
+
+        Assertions.assertEquals(5, result.getContent().size());
+        Assertions.assertEquals(countTotalProducts, result.getTotalElements());
+        Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
+        Assertions.assertEquals("PC Gamer", result.getContent().get(1).getName());
+        Assertions.assertFalse(result.getContent().get(0).getCategories().isEmpty());
+    }
+
+    // filtro por varias categorias: produto com mais de uma categoria nao pode aparecer duplicado
+    @Test
+    public void findAllPaged2ShouldFilterByCategoriesWithoutDuplicates() {
+
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("name"));
+
+        Page<ProductDTO> result = productService.findAllPaged2("", "1,2", pageRequest);
+
+        Assertions.assertEquals(3L, result.getTotalElements());
+        Assertions.assertEquals(List.of("Rails for Dummies", "Smart TV", "The Lord of the Rings"),
+                result.getContent().stream().map(ProductDTO::getName).toList());
+        Assertions.assertEquals(2, result.getContent().get(1).getCategories().size());
+    }
+
+    // pagina depois do fim continua informando o total
+    @Test
+    public void findAllPaged2ShouldReturnTotalWhenPageDoesNotExist() {
+
+        Page<ProductDTO> result = productService.findAllPaged2("", "0", PageRequest.of(50, 10));
+
+        Assertions.assertTrue(result.isEmpty());
+        Assertions.assertEquals(countTotalProducts, result.getTotalElements());
+    }
+
+    // filtro de nome resolvido pelo indice em memoria tem que bater com o LIKE do banco
+    @Test
+    public void findAllPaged2ShouldFilterByNameLikeDatabase() {
+
+        PageRequest pageRequest = PageRequest.of(0, 30, Sort.by("name"));
+
+        Page<ProductDTO> result = productService.findAllPaged2("gAmEr t", "0", pageRequest);
+        Page<ProductProjection> expected = productRepository.searchProducts(List.of(), "gAmEr t", pageRequest);
+
+        Assertions.assertEquals(expected.getTotalElements(), result.getTotalElements());
+        Assertions.assertEquals(expected.map(ProductProjection::getName).getContent(),
+                result.map(ProductDTO::getName).getContent());
+        Assertions.assertTrue(productService.findAllPaged2("xyz", "0", pageRequest).isEmpty());
+    }
+
+    // filtro de categoria pelos bitmaps combinado com o filtro de nome
+    @Test
+    public void findAllPaged2ShouldCombineNameAndCategoryFilters() {
+
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("name"));
+
+        Page<ProductDTO> result = productService.findAllPaged2("the", "1,2", pageRequest);
+
+        Assertions.assertEquals(1L, result.getTotalElements());
+        Assertions.assertEquals("The Lord of the Rings", result.getContent().get(0).getName());
+    }
+
+    // a listagem nao deveria ler a descricao, mas deveria trazer as categorias
+    @Test
+    public void findAllPaged2ShouldReturnProductsWithoutDescription() {
+
+        Page<ProductDTO> result = productService.findAllPaged2("", "0", PageRequest.of(0, 5));
+
+        Assertions.assertTrue(result.getContent().stream().allMatch(p -> p.getDescription() == null));
+        Assertions.assertTrue(result.getContent().stream().allMatch(p -> !p.getCategories().isEmpty()));
+    }
+
+    // faixa de preco deveria filtrar no banco e o sort por preco deveria valer
+    @Test
+    public void findAllPaged2ShouldFilterByPriceRangeSortedByPrice() {
+
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "price"));
+
+        Page<ProductDTO> result = productService.findAllPaged2("", "0", 100.0, 1300.0, null, null, pageRequest);
+
+        Assertions.assertEquals(4L, result.getTotalElements());
+        Assertions.assertEquals(List.of("PC Gamer Turbo", "Macbook Pro", "PC Gamer", "Rails for Dummies"),
+                result.getContent().stream().map(ProductDTO::getName).toList());
+    }
+
+    // faixa de datas (inclusiva) combinada com o filtro de nome
+    @Test
+    public void findAllPaged2ShouldFilterByDateRange() {
+
+        PageRequest pageRequest = PageRequest.of(0, 30);
+        Instant day = Instant.parse("2020-07-14T00:00:00Z");
+
+        Page<ProductDTO> before = productService.findAllPaged2("", "0", null, null, null, day, pageRequest);
+        Assertions.assertEquals(1L, before.getTotalElements());
+        Assertions.assertEquals("The Lord of the Rings", before.getContent().get(0).getName());
+
+        Page<ProductDTO> after = productService.findAllPaged2("gamer", "0", null, null, day, null, pageRequest);
+        Assertions.assertEquals(21L, after.getTotalElements());
+    }
+
+    // busca aproximada deveria achar o produto mesmo com letras erradas, faltando ou invertidas
+    @Test
+    public void findAllFuzzyShouldMatchMisspelledNames() {
+
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("name"));
+
+        Page<ProductDTO> result = productService.findAllFuzzy("macbok", "0", pageRequest);
+        Assertions.assertEquals(1L, result.getTotalElements());
+        Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
+
+        result = productService.findAllFuzzy("pc gamr tubro", "0", pageRequest);
+        Assertions.assertEquals(1L, result.getTotalElements());
+        Assertions.assertEquals("PC Gamer Turbo", result.getContent().get(0).getName());
+
+        Assertions.assertTrue(productService.findAllFuzzy("macbook", "1", pageRequest).isEmpty());
+    }
+
+    // busca por relevancia deveria trazer primeiro o produto com mais termos da busca, mesmo fora da ordem alfabetica
+    @Test
+    public void findAllByRelevanceShouldRankBestMatchFirst() {
+
+        PageRequest pageRequest = PageRequest.of(0, 5, Sort.by("name"));
+
+        Page<ProductDTO> result = productService.findAllByRelevance("pc gamer turbo", "0", pageRequest);
+
+        Assertions.assertEquals("PC Gamer Turbo", result.getContent().get(0).getName());
+        Assertions.assertEquals(5, result.getContent().size());
+        Assertions.assertEquals(21L, result.getTotalElements());
+        Assertions.assertTrue(result.getContent().get(0).getCategories().size() > 0);
+    }
+
+    // findAllByIds deveria devolver os produtos completos na ordem dos ids, sem repetidos e sem os inexistentes
+    @Test
+    public void findAllByIdsShouldReturnProductsInRequestedOrder() {
+
+        List<ProductDTO> result = productService.findAllByIds(List.of(3L, nonExistingId, existingId, 2L, 3L));
+
+        Assertions.assertEquals(List.of(3L, existingId, 2L), result.stream().map(ProductDTO::getId).toList());
+        Assertions.assertEquals(productService.findById(existingId).getDescription(), result.get(1).getDescription());
+        Assertions.assertTrue(result.stream().allMatch(dto -> !dto.getCategories().isEmpty()));
+    }
+
+    // produto sem categoria nao aparece nas listagens, e por isso tambem fica de fora do findAllByIds
+    @Test
+    public void findAllByIdsShouldSkipProductsWithoutCategories() {
+
+        Product product = Factory.createProduct();
+        product.setId(null);
+        product.getCategories().clear();
+        Long uncategorizedId = productRepository.saveAndFlush(product).getId();
+
+        List<ProductDTO> result = productService.findAllByIds(List.of(uncategorizedId, existingId));
+
+        Assertions.assertEquals(List.of(existingId), result.stream().map(ProductDTO::getId).toList());
+    }
+
+    // facetas: quantidade de produtos por categoria para o filtro de nome, igual ao GROUP BY no banco
+    @Test
+    public void findCategoryFacetsShouldCountProductsPerCategory() {
+
+        Map<Long, Long> all = productService.findCategoryFacets("").stream()
+                .collect(Collectors.toMap(CategoryFacetDTO::getId, CategoryFacetDTO::getCount));
+        Map<Long, Long> byName = productService.findCategoryFacets("the").stream()
+                .collect(Collectors.toMap(CategoryFacetDTO::getId, CategoryFacetDTO::getCount));
+
+        Assertions.assertEquals(Map.of(1L, 1L, 2L, 2L, 3L, 23L), all);
+        Assertions.assertEquals(Map.of(1L, 0L, 2L, 1L, 3L, 0L), byName);
+        Assertions.assertEquals(3, productRepository.countProductsByCategory("").size());
+    }
+
+    // busca sem total: ultima pagina nao tem proxima, as anteriores tem
+    @Test
+    public void findAllSlicedShouldReportNextPageWithoutTotal() {
+
+        Slice<ProductDTO> first = productService.findAllSliced("", "0", PageRequest.of(0, 10, Sort.by("name")));
+        Slice<ProductDTO> last = productService.findAllSliced("", "0", PageRequest.of(2, 10, Sort.by("name")));
+
+        Assertions.assertEquals(10, first.getContent().size());
+        Assertions.assertTrue(first.hasNext());
+        Assertions.assertEquals("Macbook Pro", first.getContent().get(0).getName());
+        Assertions.assertEquals(5, last.getContent().size());
+        Assertions.assertFalse(last.hasNext());
+    }
+
+    // teste para percorrer todas as paginas por cursor: tem que trazer todos os produtos, ordenados pelo nome e sem repetir
+    @Test
+    public void findAllCursorShouldWalkAllProductsSortedByName() {
+
+        List<String> names = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPageDTO<ProductDTO> result = productService.findAllCursor("", "0", after, 10);
+            result.getContent().forEach(p -> names.add(p.getName()));
+            after = result.getNext();
+        } while (after != null);
+
+        Assertions.assertEquals(countTotalProducts, names.size());
+        Assertions.assertEquals("Macbook Pro", names.get(0));
+        Assertions.assertEquals("PC Gamer", names.get(1));
+        Assertions.assertEquals(names.stream().sorted().toList(), names);
+    }
+
+    // cursor com filtro de categoria: produtos em varias das categorias filtradas aparecem uma vez so
+    @Test
+    public void findAllCursorShouldNotRepeatProductsInSeveralCategories() {
+
+        List<Long> ids = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPageDTO<ProductDTO> result = productService.findAllCursor("", "1,2,3", after, 4);
+            result.getContent().forEach(p -> ids.add(p.getId()));
+            after = result.getNext();
+        } while (after != null);
+
+        Page<ProductDTO> expected = productService.findAllPaged2("", "1,2,3", PageRequest.of(0, 100, Sort.by("name", "id")));
+        Assertions.assertEquals(expected.map(ProductDTO::getId).getContent(), ids);
+    }
+
     // teste para verificar se está realmente deletando produto com id existente, buscando os produtos do nosso seed do banco (import.sql)
     @Test
     public void deleteShouldDeleteResourceWhenIdExists() {
@@ -97,4 +349,74 @@ public class ProductServiceIntegracaoTest {
             productService.delete(nonExistingId);
         });
     }
+
+    // importacao de CSV deveria gravar os registros validos (com categorias) e rejeitar os invalidos com o numero do registro
+    @Test
+    public void importCsvShouldInsertValidRowsAndReportInvalidOnes() throws Exception {
+
+        String csv = """
+                name,description,price,imgUrl,date,categories
+                Teclado Mecanico,"Switches azuis, layout ABNT2",350.0,,2024-05-01T10:00:00Z,2|3|3
+                Mouse,Mouse sem fio,abc,,,2
+                Monitor Ultrawide,Monitor de 34 polegadas,-10.0,,,2
+                Headset Gamer,Som surround,420.0,,,99
+                Cabo HDMI,Cabo de 2 metros,30.0,,,2,coluna a mais
+                Pendrive 64GB,Pendrive USB 3.0,59.9,,,
+                Webcam Full HD,Webcam 1080p,199.9,,,1
+                """;
+
+        ProductImportReportDTO report = productImportService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertEquals(2, report.getImported());
+        Assertions.assertEquals(5, report.getRejected());
+        Assertions.assertEquals(List.of(2L, 3L, 4L, 5L, 6L), report.getErrors().stream().map(ProductImportErrorDTO::getRow).toList());
+        Assertions.assertTrue(report.getErrors().get(3).getMessage().startsWith("Linha inválida"));
+        Assertions.assertEquals("O produto deve ter pelo menos uma categoria.", report.getErrors().get(4).getMessage());
+        Assertions.assertEquals(countTotalProducts + 2, productRepository.count());
+
+        List<Product> imported = productRepository.findAll(Sort.by("id").descending()).subList(0, 2);
+        Product keyboard = imported.get(1);
+        Assertions.assertEquals("Teclado Mecanico", keyboard.getName());
+        Assertions.assertEquals("teclado mecanico", keyboard.getSearchName());
+        Assertions.assertEquals("Switches azuis, layout ABNT2", keyboard.getDescription());
+        Assertions.assertEquals(Instant.parse("2024-05-01T10:00:00Z"), keyboard.getDate());
+        Assertions.assertEquals(Set.of(2L, 3L), keyboard.getCategories().stream().map(Category::getId).collect(Collectors.toSet()));
+        Assertions.assertEquals(Set.of(1L), imported.get(0).getCategories().stream().map(Category::getId).collect(Collectors.toSet()));
+
+        // os ids da importacao e os do Hibernate saem de blocos diferentes da mesma sequence
+        ProductDTO inserted = productService.insert(Factory.creatProductDTO());
+        productRepository.flush();
+        Assertions.assertFalse(imported.stream().map(Product::getId).toList().contains(inserted.getId()));
+    }
+
+    // upsertAll deveria atualizar os existentes (com diff das categorias), inserir os sem id e rejeitar o resto item a item
+    @Test
+    public void upsertAllShouldApplyValidItemsAndReportEachResult() {
+
+        ProductDTO update = productService.findById(existingId);
+        update.setPrice(99.9);
+        update.setCategories(new ArrayList<>(List.of(new CategoryDTO(2L, null), new CategoryDTO(3L, null))));
+        ProductDTO insert = new ProductDTO(null, "Cadeira Gamer", "Cadeira reclinavel", 1500.0, null, null);
+        insert.getCategories().add(new CategoryDTO(2L, null));
+        ProductDTO notFound = new ProductDTO(1000L, "Produto Fantasma", "Nao existe", 10.0, null, null);
+        ProductDTO invalidPrice = new ProductDTO(2L, "Smart TV", "Sem preco", -1.0, null, null);
+        ProductDTO invalidCategory = new ProductDTO(3L, "Macbook Pro", "Categoria errada", 10.0, null, null);
+        invalidCategory.getCategories().add(new CategoryDTO(99L, null));
+
+        List<ProductBatchResultDTO> results = productService.upsertAll(List.of(update, insert, notFound, invalidPrice, invalidCategory));
+
+        Assertions.assertEquals(List.of(ProductBatchResultDTO.Status.UPDATED, ProductBatchResultDTO.Status.CREATED,
+                        ProductBatchResultDTO.Status.NOT_FOUND, ProductBatchResultDTO.Status.INVALID, ProductBatchResultDTO.Status.INVALID),
+                results.stream().map(ProductBatchResultDTO::getStatus).toList());
+        Assertions.assertEquals("Categoria com id: 99, não encontrada.", results.get(4).getMessage());
+
+        productRepository.flush();
+        Product updated = productRepository.findById(existingId).get();
+        Assertions.assertEquals(99.9, updated.getPrice());
+        Assertions.assertEquals(Set.of(2L, 3L), updated.getCategories().stream().map(Category::getId).collect(Collectors.toSet()));
+        Product created = productRepository.findById(results.get(1).getId()).get();
+        Assertions.assertEquals("Cadeira Gamer", created.getName());
+        Assertions.assertEquals(countTotalProducts + 1, productRepository.count());
+        Assertions.assertEquals(2190.0, productRepository.findById(2L).get().getPrice());
+    }
 }
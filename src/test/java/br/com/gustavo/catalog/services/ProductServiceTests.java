@@ -8,6 +8,9 @@ import br.com.gustavo.catalog.repositories.ProductRepository;
 import br.com.gustavo.catalog.services.exceptions.DatabaseException;
 import br.com.gustavo.catalog.services.exceptions.InvalidDataException;
 import br.com.gustavo.catalog.services.exceptions.ResourceNotFoundException;
+import br.com.gustavo.catalog.services.cache.ProductDetailCache;
+import br.com.gustavo.catalog.services.cache.ProductSearchCache;
+import br.com.gustavo.catalog.services.search.ProductIndexer;
 import br.com.gustavo.catalog.tests.Factory;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Assertions;
@@ -25,8 +28,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.mockito.Mockito.verify;
 
@@ -42,6 +48,15 @@ public class ProductServiceTests {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ProductIndexer productIndexer;
+
+    @Mock
+    private ProductSearchCache productSearchCache;
+
+    @Mock
+    private ProductDetailCache productDetailCache;
+
     private long existingId;
     private long nonExistingId;
     private long dependentId;
@@ -67,14 +82,15 @@ public class ProductServiceTests {
         Mockito.when(productRepository.save(ArgumentMatchers.any())).thenReturn(product);
 
         // simulando comportamento para buscar produto existente e inexistente por id
-        Mockito.when(productRepository.findById(existingId)).thenReturn(Optional.of(product));
-        Mockito.when(productRepository.findById(nonExistingId)).thenReturn(Optional.empty());
+        Mockito.when(productRepository.findWithDescriptionById(existingId)).thenReturn(Optional.of(product));
+        Mockito.when(productRepository.findWithDescriptionById(nonExistingId)).thenReturn(Optional.empty());
 
         Mockito.when(productRepository.getReferenceById(existingId)).thenReturn(product);
         Mockito.when(productRepository.getReferenceById(nonExistingId)).thenThrow(EntityNotFoundException.class);
 
-        Mockito.when(categoryRepository.getReferenceById(existingId)).thenReturn(category);
-        Mockito.when(categoryRepository.getReferenceById(nonExistingId)).thenThrow(EntityNotFoundException.class);
+        // as categorias do produto sao buscadas todas de uma vez; id inexistente simplesmente nao volta
+        Mockito.when(categoryRepository.loadAllById(Set.of(existingId))).thenReturn(List.of(category));
+        Mockito.when(categoryRepository.loadAllById(Set.of(nonExistingId))).thenReturn(List.of());
 
         Mockito.doNothing().when(productRepository).deleteById(existingId);
         Mockito.doThrow(DataIntegrityViolationException.class).when(productRepository).deleteById(dependentId);
@@ -105,6 +121,46 @@ public class ProductServiceTests {
         Assertions.assertNotNull(result);
     }
 
+    // update deveria lançar ResourceNotFoundException quando alguma categoria do produto não existir
+    @Test
+    public void updateShouldThrowResourceNotFoundExceptionWhenCategoryDoesNotExist() {
+
+        productDTO.getCategories().get(0).setId(nonExistingId);
+
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+            productService.update(existingId, productDTO);
+        });
+
+        verify(categoryRepository).loadAllById(Set.of(nonExistingId));
+        Mockito.verify(productRepository, Mockito.never()).save(ArgumentMatchers.any());
+    }
+
+    // upsertAll deveria lançar IllegalArgumentException quando o lote passar do maximo, sem ir ao banco
+    @Test
+    public void upsertAllShouldThrowIllegalArgumentExceptionWhenBatchIsTooLarge() {
+
+        List<ProductDTO> dtos = Collections.nCopies(ProductService.MAX_BATCH_ITEMS + 1, productDTO);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            productService.upsertAll(dtos);
+        });
+
+        Mockito.verifyNoInteractions(productRepository);
+    }
+
+    // findAllByIds deveria lançar IllegalArgumentException quando passar do maximo de ids, sem ir ao banco
+    @Test
+    public void findAllByIdsShouldThrowIllegalArgumentExceptionWhenTooManyIds() {
+
+        List<Long> ids = LongStream.rangeClosed(1, ProductService.MAX_IDS + 1).boxed().toList();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            productService.findAllByIds(ids);
+        });
+
+        Mockito.verifyNoInteractions(productRepository);
+    }
+
     // findById deveria lançar ResourceNotFoundException quando o id não existir
     @Test
     public void findByIdShouldThrowResourceNotFoundExceptionWhenIdDoesNotExist() {
@@ -113,7 +169,7 @@ public class ProductServiceTests {
             productService.findById(nonExistingId);
         });
 
-        verify(productRepository).findById(nonExistingId);
+        verify(productRepository).findWithDescriptionById(nonExistingId);
     }
 
     // findById deveria retornar um ProductDTO quando o id existir
@@ -123,7 +179,7 @@ public class ProductServiceTests {
         ProductDTO result = productService.findById(existingId);
 
         Assertions.assertNotNull(result);
-        verify(productRepository).findById(existingId);
+        verify(productRepository).findWithDescriptionById(existingId);
     }
 
     @Test
@@ -0,0 +1,73 @@
+package br.com.gustavo.catalog.services.cache;
+
+import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.tests.Factory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+public class ProductDetailCacheTests {
+
+    private ProductDetailCache productDetailCache;
+    private ObjectMapper objectMapper;
+    private AtomicInteger loads;
+    private ProductDTO productDTO;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        productDetailCache = new ProductDetailCache(true, 100, true, objectMapper, new SimpleMeterRegistry());
+        loads = new AtomicInteger();
+        productDTO = Factory.creatProductDTO();
+    }
+
+    private ProductDetailCache.Entry get(String eTag) {
+        return productDetailCache.get(productDTO.getId(), eTag, () -> {
+            loads.incrementAndGet();
+            return productDTO;
+        });
+    }
+
+    // o mesmo produto com o mesmo ETag deveria sair do cache, ja serializado e comprimido
+    @Test
+    public void getShouldReturnCachedBytesWhenETagIsTheSame() throws Exception {
+        ProductDetailCache.Entry first = get("1-0-a");
+        ProductDetailCache.Entry second = get("1-0-a");
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertSame(first, second);
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(productDTO), first.json());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            Assertions.assertArrayEquals(first.json(), in.readAllBytes());
+        }
+    }
+
+    // um ETag diferente (produto ou categoria gravados) deveria montar a entrada de novo
+    @Test
+    public void getShouldReloadWhenETagChanges() {
+        get("1-0-a");
+        get("1-1-a");
+        get("1-1-a");
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    // depois do evict o produto deveria ser carregado de novo, e sem ETag nada fica no cache
+    @Test
+    public void getShouldReloadAfterEvictAndNotCacheWithoutETag() {
+        get("1-0-a");
+        productDetailCache.evict(productDTO.getId());
+        get("1-0-a");
+        get(null);
+        get(null);
+
+        Assertions.assertEquals(4, loads.get());
+    }
+}
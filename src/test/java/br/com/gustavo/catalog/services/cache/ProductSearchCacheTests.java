@@ -0,0 +1,186 @@
+package br.com.gustavo.catalog.services.cache;
+
+import br.com.gustavo.catalog.dto.ProductDTO;
+import br.com.gustavo.catalog.repositories.ProductSearchFilter;
+import br.com.gustavo.catalog.tests.Factory;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProductSearchCacheTests {
+
+    private ProductSearchCache productSearchCache;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+    private Pageable pageable;
+    private Page<ProductDTO> page;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        productSearchCache = new ProductSearchCache(true, 100, Duration.ofMinutes(1), meterRegistry);
+        loads = new AtomicInteger();
+        pageable = PageRequest.of(0, 10);
+
+        // produto 1 ("Phone"), na categoria 1
+        page = new PageImpl<>(List.of(Factory.creatProductDTO()), pageable, 1);
+    }
+
+    private Page<ProductDTO> search(String name, List<Long> categoryIds) {
+        return productSearchCache.get(new ProductSearchFilter(categoryIds, name), pageable, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+    }
+
+    // a mesma busca, escrita de outro jeito (caixa, espacos, ordem das categorias), deveria vir do cache
+    @Test
+    public void getShouldReuseNormalizedSearch() {
+
+        search("Phone", List.of(2L, 1L));
+        search("  phone ", List.of(1L, 2L, 2L));
+
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    // produto que passa a casar com o filtro deveria tirar a busca do cache, mesmo sem aparecer na pagina
+    @Test
+    public void evictProductShouldRemoveSearchesMatchingProduct() {
+
+        search("pho", List.of());
+        search("tv", List.of());
+        productSearchCache.evictProduct(99L, "Smartphone", List.of(3L));
+        search("pho", List.of());
+        search("tv", List.of());
+
+        Assertions.assertEquals(3, loads.get());
+    }
+
+    // produto que aparece na pagina deveria tirar a busca do cache, mesmo que o nome novo nao case mais
+    @Test
+    public void evictProductShouldRemoveSearchesShowingProduct() {
+
+        search("phone", List.of());
+        productSearchCache.evictProduct(page.getContent().get(0).getId(), "Tablet", List.of());
+        search("phone", List.of());
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    // mudanca numa categoria deveria tirar do cache as buscas filtradas por ela
+    @Test
+    public void evictCategoryShouldRemoveSearchesFilteredByCategory() {
+
+        search("tv", List.of(3L));
+        search("tv", List.of(1L));
+        productSearchCache.evictCategory(3L);
+        search("tv", List.of(3L));
+        search("tv", List.of(1L));
+
+        Assertions.assertEquals(3, loads.get());
+    }
+
+    // uma escrita durante a consulta nao pode deixar o resultado (possivelmente velho) no cache
+    @Test
+    public void getShouldNotStoreResultLoadedDuringWrite() {
+
+        productSearchCache.get(new ProductSearchFilter(List.of(), "phone"), pageable, () -> {
+            productSearchCache.evictAll();
+            return page;
+        });
+        search("phone", List.of());
+
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    // escrita que acontece entre a checagem da geracao e o put (ela nao acha a pagina para remover):
+    // o put que perdeu a corrida nao pode deixar a pagina velha no cache
+    @Test
+    public void getShouldNotKeepPageWhenWriteRunsRightBeforePut() {
+
+        AtomicBoolean writeOnNextPut = new AtomicBoolean();
+        Ticker ticker = () -> {
+            if (writeOnNextPut.compareAndSet(true, false)) {
+                productSearchCache.evictAll();
+            }
+            return System.nanoTime();
+        };
+        productSearchCache = new ProductSearchCache(true, 100, Duration.ofMinutes(1), meterRegistry, ticker);
+
+        productSearchCache.get(new ProductSearchFilter(List.of(), "phone"), pageable, () -> {
+            loads.incrementAndGet();
+            writeOnNextPut.set(true);
+            return page;
+        });
+        search("phone", List.of());
+
+        Assertions.assertFalse(writeOnNextPut.get());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    // buscas iguais ao mesmo tempo deveriam virar uma consulta so, mesmo com o cache desligado
+    @Test
+    public void getShouldCoalesceConcurrentIdenticalSearchesWhenCacheDisabled() throws Exception {
+
+        productSearchCache = new ProductSearchCache(false, 100, Duration.ofMinutes(1), meterRegistry);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Page<ProductDTO>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> productSearchCache.get(new ProductSearchFilter(List.of(1L), "phone"), pageable, () -> {
+                    loads.incrementAndGet();
+                    // segura a consulta ate as outras buscas estarem esperando por ela
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                    while (meterRegistry.counter("catalog.search.coalesced").count() < threads - 1
+                            && System.nanoTime() < deadline) {
+                        Thread.onSpinWait();
+                    }
+                    return page;
+                })));
+            }
+            for (Future<Page<ProductDTO>> result : results) {
+                Assertions.assertSame(page, result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, loads.get());
+
+        // sem cache, a proxima busca vai ao banco de novo
+        search("phone", List.of(1L));
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    // erro na consulta deveria chegar a quem estava esperando, e nao ficar preso como busca em andamento
+    @Test
+    public void getShouldPropagateLoaderErrorAndReleaseSearch() {
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            productSearchCache.get(new ProductSearchFilter(List.of(), "phone"), pageable, () -> {
+                throw new IllegalArgumentException("Ordenação inválida");
+            });
+        });
+        search("phone", List.of());
+
+        Assertions.assertEquals(1, loads.get());
+    }
+}
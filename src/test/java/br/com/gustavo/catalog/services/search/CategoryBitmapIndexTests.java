@@ -0,0 +1,76 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductCategoryProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class CategoryBitmapIndexTests {
+
+    @InjectMocks
+    private CategoryBitmapIndex categoryBitmapIndex;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.when(productRepository.searchProductCategories()).thenReturn(List.of(
+                association(1L, 2L),
+                association(2L, 1L),
+                association(2L, 3L),
+                association(3L, 3L)));
+
+        categoryBitmapIndex.build();
+    }
+
+    // varias categorias deveriam virar a uniao dos produtos de cada uma
+    @Test
+    public void anyOfShouldReturnUnionOfCategories() {
+
+        Assertions.assertArrayEquals(new long[] {1L, 2L}, categoryBitmapIndex.anyOf(List.of(1L, 2L)).toArray());
+        Assertions.assertArrayEquals(new long[] {2L, 3L}, categoryBitmapIndex.anyOf(List.of(3L)).toArray());
+        Assertions.assertArrayEquals(new long[0], categoryBitmapIndex.anyOf(List.of(9L)).toArray());
+    }
+
+    // trocar as categorias de um produto deveria tirar ele dos bitmaps antigos
+    @Test
+    public void putShouldMoveProductBetweenCategories() {
+
+        categoryBitmapIndex.put(2L, List.of(2L));
+
+        Assertions.assertArrayEquals(new long[] {1L, 2L}, categoryBitmapIndex.anyOf(List.of(2L)).toArray());
+        Assertions.assertArrayEquals(new long[] {3L}, categoryBitmapIndex.anyOf(List.of(1L, 3L)).toArray());
+    }
+
+    @Test
+    public void removeShouldRemoveProductFromAllCategories() {
+
+        categoryBitmapIndex.remove(2L);
+
+        Assertions.assertArrayEquals(new long[] {1L, 3L}, categoryBitmapIndex.anyOf(List.of()).toArray());
+    }
+
+    private ProductCategoryProjection association(Long productId, Long categoryId) {
+        return new ProductCategoryProjection() {
+            @Override
+            public Long getProductId() {
+                return productId;
+            }
+
+            @Override
+            public Long getCategoryId() {
+                return categoryId;
+            }
+        };
+    }
+}
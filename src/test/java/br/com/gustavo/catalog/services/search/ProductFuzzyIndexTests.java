@@ -0,0 +1,90 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class ProductFuzzyIndexTests {
+
+    @InjectMocks
+    private ProductFuzzyIndex productFuzzyIndex;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.when(productRepository.searchProductNames()).thenReturn(List.of(
+                projection(1L, "Macbook Pro"),
+                projection(2L, "Notebook Gamer"),
+                projection(3L, "PC Gamer"),
+                projection(4L, "Smart TV")));
+
+        productFuzzyIndex.build();
+    }
+
+    // palavras com ate 2 erros (5 letras ou mais) deveriam casar, e todas as palavras do texto precisam casar
+    @Test
+    public void searchShouldMatchWordsWithinEditDistance() {
+
+        Assertions.assertArrayEquals(new long[] {1L}, productFuzzyIndex.search("macbok"));
+        Assertions.assertArrayEquals(new long[] {2L}, productFuzzyIndex.search("NOTBOK"));
+        Assertions.assertArrayEquals(new long[] {2L, 3L}, productFuzzyIndex.search("gamre"));
+        Assertions.assertArrayEquals(new long[] {3L}, productFuzzyIndex.search("pc gamr"));
+        Assertions.assertArrayEquals(new long[0], productFuzzyIndex.search("notebook tv"));
+    }
+
+    // palavras curtas aceitam menos erros: 1 erro ate 4 letras, nenhum abaixo de 3
+    @Test
+    public void searchShouldAllowFewerErrorsForShortWords() {
+
+        Assertions.assertArrayEquals(new long[] {1L}, productFuzzyIndex.search("pri"));
+        Assertions.assertArrayEquals(new long[0], productFuzzyIndex.search("pxi"));
+        Assertions.assertArrayEquals(new long[0], productFuzzyIndex.search("tx"));
+    }
+
+    // renomear ou remover um produto deveria trocar as palavras dele no indice
+    @Test
+    public void putAndRemoveShouldReplaceProductWords() {
+
+        productFuzzyIndex.put(1L, "Macbook Air");
+        productFuzzyIndex.remove(4L);
+
+        Assertions.assertArrayEquals(new long[] {1L}, productFuzzyIndex.search("macbok air"));
+        Assertions.assertArrayEquals(new long[0], productFuzzyIndex.search("pro"));
+        Assertions.assertArrayEquals(new long[0], productFuzzyIndex.search("smrat"));
+    }
+
+    // distancia de edicao com inversao de letras vizinhas contando como 1
+    @Test
+    public void distanceShouldCountTranspositionAsOneEdit() {
+
+        Assertions.assertEquals(1, ProductFuzzyIndex.distance("turbo", "tubro", 2));
+        Assertions.assertEquals(2, ProductFuzzyIndex.distance("notebook", "notbok", 2));
+        Assertions.assertEquals(3, ProductFuzzyIndex.distance("notebook", "tv", 2));
+    }
+
+    private ProductProjection projection(Long id, String name) {
+        return new ProductProjection() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.gustavo.catalog.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+
+@ExtendWith(SpringExtension.class)
+public class ProductIndexerTests {
+
+    @InjectMocks
+    private ProductIndexer productIndexer;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private CategoryBitmapIndex categoryBitmapIndex;
+
+    @Mock
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Mock
+    private ProductFuzzyIndex productFuzzyIndex;
+
+    @Mock
+    private ProductRelevanceIndex productRelevanceIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.when(productFuzzyIndex.isReady()).thenReturn(true);
+    }
+
+    // fuzzy deveria devolver os ids que casaram enquanto cabem no IN da consulta
+    @Test
+    public void fuzzyShouldReturnIdsWhenWithinLimit() {
+
+        Mockito.when(productFuzzyIndex.search("pc")).thenReturn(new long[] {1L, 2L, 3L});
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L), productIndexer.fuzzy("pc", List.of()));
+    }
+
+    // fuzzy deveria devolver null (busca normal) qnd casar mais ids do que o maximo, igual ao resolve
+    @Test
+    public void fuzzyShouldReturnNullWhenTooManyIds() {
+
+        long[] ids = LongStream.rangeClosed(1, ProductIndexer.MAX_INDEXED_IDS + 1).toArray();
+        Mockito.when(productFuzzyIndex.search("pc")).thenReturn(ids);
+
+        Assertions.assertNull(productIndexer.fuzzy("pc", List.of()));
+    }
+
+    // relevance sem filtro de categoria deveria deixar de fora os produtos sem categoria (que a pagina nao traz)
+    @Test
+    public void relevanceShouldSkipProductsWithoutCategory() {
+
+        Mockito.when(productRelevanceIndex.isReady()).thenReturn(true);
+        Mockito.when(categoryBitmapIndex.isReady()).thenReturn(true);
+        Roaring64Bitmap categorized = new Roaring64Bitmap();
+        categorized.addLong(1L);
+        categorized.addLong(2L);
+        Mockito.when(categoryBitmapIndex.anyOf(List.of())).thenReturn(categorized);
+
+        productIndexer.relevance("pc", List.of(), 10);
+
+        ArgumentCaptor<LongPredicate> filter = ArgumentCaptor.forClass(LongPredicate.class);
+        Mockito.verify(productRelevanceIndex).search(Mockito.eq("pc"), filter.capture(), Mockito.eq(10));
+        Assertions.assertTrue(filter.getValue().test(2L));
+        Assertions.assertFalse(filter.getValue().test(3L));
+    }
+}
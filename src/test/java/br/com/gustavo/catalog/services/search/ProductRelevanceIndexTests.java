@@ -0,0 +1,96 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductTextProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class ProductRelevanceIndexTests {
+
+    @InjectMocks
+    private ProductRelevanceIndex productRelevanceIndex;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.when(productRepository.searchProductTexts()).thenReturn(List.of(
+                projection(1L, "Mouse Pad", "Pad grande para mouse e teclado"),
+                projection(2L, "Mouse Gamer", "Mouse com 6 botoes"),
+                projection(3L, "Teclado", "Teclado mecanico, combina com qualquer mouse"),
+                projection(4L, "Monitor", "Monitor 27 polegadas")));
+
+        productRelevanceIndex.build();
+    }
+
+    // o termo no nome pesa mais que na descricao, e quem tem mais termos da busca fica na frente
+    @Test
+    public void searchShouldRankByRelevance() {
+
+        ProductRelevanceIndex.TopProducts result = productRelevanceIndex.search("mouse", id -> true, 10);
+        Assertions.assertEquals(List.of(2L, 1L, 3L), result.ids());
+        Assertions.assertEquals(3, result.total());
+
+        Assertions.assertEquals(List.of(1L), productRelevanceIndex.search("pad", id -> true, 10).ids());
+    }
+
+    // so os k melhores deveriam voltar, mas o total conta todos os que casam
+    @Test
+    public void searchShouldReturnOnlyTopKAndMatchingTotal() {
+
+        ProductRelevanceIndex.TopProducts result = productRelevanceIndex.search("mouse", id -> true, 2);
+
+        Assertions.assertEquals(List.of(2L, 1L), result.ids());
+        Assertions.assertEquals(3, result.total());
+    }
+
+    // produtos fora do filtro (categorias) nao entram no resultado nem no total
+    @Test
+    public void searchShouldSkipFilteredProducts() {
+
+        ProductRelevanceIndex.TopProducts result = productRelevanceIndex.search("mouse", id -> id != 2L, 10);
+
+        Assertions.assertEquals(List.of(1L, 3L), result.ids());
+        Assertions.assertEquals(2, result.total());
+    }
+
+    // renomear ou remover um produto deveria trocar os termos dele (1 e 4 empatam: desempate pelo menor id)
+    @Test
+    public void putAndRemoveShouldReplaceProductTerms() {
+
+        productRelevanceIndex.put(4L, "Mouse sem fio", "Mouse sem fio");
+        productRelevanceIndex.remove(2L);
+
+        Assertions.assertEquals(List.of(1L, 4L, 3L), productRelevanceIndex.search("mouse", id -> true, 10).ids());
+        Assertions.assertTrue(productRelevanceIndex.search("monitor", id -> true, 10).ids().isEmpty());
+    }
+
+    private ProductTextProjection projection(Long id, String name, String description) {
+        return new ProductTextProjection() {
+            @Override
+            public String getDescription() {
+                return description;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+        };
+    }
+}
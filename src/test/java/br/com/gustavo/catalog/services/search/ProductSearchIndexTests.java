@@ -0,0 +1,84 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class ProductSearchIndexTests {
+
+    @InjectMocks
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.when(productRepository.searchProductNames()).thenReturn(List.of(
+                projection(1L, "Macbook Pro"),
+                projection(2L, "PC Gamer"),
+                projection(3L, "PC Gamer Pro"),
+                projection(4L, "Smart TV")));
+
+        productSearchIndex.build();
+    }
+
+    // busca por trigramas deveria trazer so os nomes que contem o texto, sem diferenciar maiusculas
+    @Test
+    public void searchShouldReturnIdsWhoseNameContainsText() {
+
+        Assertions.assertArrayEquals(new long[] {1L, 3L}, productSearchIndex.search("PRO"));
+        Assertions.assertArrayEquals(new long[] {2L, 3L}, productSearchIndex.search("pc gamer"));
+        Assertions.assertArrayEquals(new long[0], productSearchIndex.search("notebook"));
+    }
+
+    // ter todos os trigramas fora de ordem nao pode contar como resultado
+    @Test
+    public void searchShouldNotReturnIdsWithTrigramsOutOfOrder() {
+
+        productSearchIndex.put(5L, "abcxbcd");
+
+        Assertions.assertArrayEquals(new long[0], productSearchIndex.search("abcd"));
+    }
+
+    // textos com menos de 3 letras nao tem trigrama, entao a busca percorre os nomes
+    @Test
+    public void searchShouldWorkWithShortText() {
+
+        Assertions.assertArrayEquals(new long[] {4L}, productSearchIndex.search("tv"));
+    }
+
+    @Test
+    public void putAndRemoveShouldKeepIndexUpToDate() {
+
+        productSearchIndex.put(4L, "Smart Pro TV");
+        productSearchIndex.remove(1L);
+
+        Assertions.assertArrayEquals(new long[] {3L, 4L}, productSearchIndex.search("pro"));
+        Assertions.assertArrayEquals(new long[0], productSearchIndex.search("macbook"));
+    }
+
+    private ProductProjection projection(Long id, String name) {
+        return new ProductProjection() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package br.com.gustavo.catalog.services.search;
+
+import br.com.gustavo.catalog.projections.ProductProjection;
+import br.com.gustavo.catalog.repositories.ProductRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Map;
+
+@ExtendWith(SpringExtension.class)
+public class ProductSuggestIndexTests {
+
+    @InjectMocks
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.when(productRepository.searchProductNames()).thenReturn(List.of(
+                projection(1L, "Macbook Pro"),
+                projection(2L, "PC Gamer"),
+                projection(3L, "PC Gamer Pro"),
+                projection(4L, "Smart TV")));
+
+        productSuggestIndex.build();
+    }
+
+    // prefixo do nome ou de qualquer palavra, sem diferenciar maiusculas, com o nome original na sugestao
+    @Test
+    public void suggestShouldReturnNamesStartingWithPrefix() {
+
+        Assertions.assertEquals(List.of(2L, 3L), List.copyOf(productSuggestIndex.suggest("Pc g", 10).keySet()));
+        Assertions.assertEquals(List.of(1L, 3L), List.copyOf(productSuggestIndex.suggest("pro", 10).keySet()));
+        Assertions.assertEquals("Smart TV", productSuggestIndex.suggest("tv", 10).get(4L));
+        Assertions.assertTrue(productSuggestIndex.suggest("book", 10).isEmpty());
+        Assertions.assertTrue(productSuggestIndex.suggest(" ", 10).isEmpty());
+    }
+
+    // o mesmo produto nao pode aparecer duas vezes e o limite deveria ser respeitado
+    @Test
+    public void suggestShouldReturnDistinctProductsUpToLimit() {
+
+        productSuggestIndex.put(5L, "Pro Pro");
+
+        Map<Long, String> result = productSuggestIndex.suggest("pro", 10);
+        Assertions.assertEquals(List.of(1L, 3L, 5L), List.copyOf(result.keySet()));
+        Assertions.assertEquals(2, productSuggestIndex.suggest("pro", 2).size());
+    }
+
+    // renomear ou remover um produto deveria trocar as entradas dele
+    @Test
+    public void putAndRemoveShouldReplaceProductEntries() {
+
+        productSuggestIndex.put(2L, "Notebook Gamer");
+        productSuggestIndex.remove(4L);
+
+        Assertions.assertEquals(List.of(3L), List.copyOf(productSuggestIndex.suggest("pc", 10).keySet()));
+        Assertions.assertEquals(List.of(2L, 3L), List.copyOf(productSuggestIndex.suggest("gamer", 10).keySet()));
+        Assertions.assertEquals("Notebook Gamer", productSuggestIndex.suggest("note", 10).get(2L));
+        Assertions.assertTrue(productSuggestIndex.suggest("smart", 10).isEmpty());
+    }
+
+    // um lote deveria renomear os existentes e incluir os novos, igual a um put por produto
+    @Test
+    public void putAllShouldReplaceEntriesOfWholeBatch() {
+
+        productSuggestIndex.putAll(List.of(
+                new ProductIndexer.IndexedProduct(2L, "Notebook Gamer", null, List.of()),
+                new ProductIndexer.IndexedProduct(5L, "PC Office", null, List.of()),
+                new ProductIndexer.IndexedProduct(6L, "Notebook Pro", null, List.of())));
+
+        Assertions.assertEquals(List.of(3L, 5L), List.copyOf(productSuggestIndex.suggest("pc", 10).keySet()));
+        Assertions.assertEquals(List.of(2L, 6L), List.copyOf(productSuggestIndex.suggest("note", 10).keySet()));
+        Assertions.assertEquals(List.of(1L, 3L, 6L), List.copyOf(productSuggestIndex.suggest("pro", 10).keySet()));
+        Assertions.assertEquals("Smart TV", productSuggestIndex.suggest("smart", 10).get(4L));
+    }
+
+    // escritas seguidas ficam pendentes e entram juntas na proxima leitura, valendo a ultima de cada produto
+    @Test
+    public void suggestShouldSeeAllPendingWritesInOrder() {
+
+        for (long id = 100; id < 1100; id++) {
+            productSuggestIndex.put(id, "Cabo " + id);
+        }
+        productSuggestIndex.remove(100L);
+        productSuggestIndex.put(101L, "Fonte 101");
+        productSuggestIndex.remove(4L);
+        productSuggestIndex.put(4L, "Smart TV 4K");
+
+        Assertions.assertEquals(998, productSuggestIndex.suggest("cabo", 2000).size());
+        Assertions.assertFalse(productSuggestIndex.suggest("cabo", 2000).containsKey(100L));
+        Assertions.assertEquals("Fonte 101", productSuggestIndex.suggest("fonte", 10).get(101L));
+        Assertions.assertEquals("Smart TV 4K", productSuggestIndex.suggest("4k", 10).get(4L));
+
+        productSuggestIndex.put(102L, "Fonte 102");
+        Assertions.assertEquals(List.of(101L, 102L), List.copyOf(productSuggestIndex.suggest("fonte", 10).keySet()));
+    }
+
+    private ProductProjection projection(Long id, String name) {
+        return new ProductProjection() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+        };
+    }
+}